@@ -2,10 +2,13 @@ package be.thomasheusdens.seo_metadata_microservice.auth;
 
 import be.thomasheusdens.seo_metadata_microservice.auth.refresh.*;
 import be.thomasheusdens.seo_metadata_microservice.jwt.JwtUtils;
+import be.thomasheusdens.seo_metadata_microservice.jwt.TokenRevocationList;
+import be.thomasheusdens.seo_metadata_microservice.security.LoginAttemptLimiter;
+import be.thomasheusdens.seo_metadata_microservice.security.PasswordHashingRejectedException;
 import be.thomasheusdens.seo_metadata_microservice.user.Role;
-import be.thomasheusdens.seo_metadata_microservice.user.RoleRepository;
+import be.thomasheusdens.seo_metadata_microservice.user.RoleService;
 import be.thomasheusdens.seo_metadata_microservice.user.User;
-import be.thomasheusdens.seo_metadata_microservice.user.UserRepository;
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,9 +34,9 @@ import java.util.Map;
 @RequestMapping("/api/auth")
 public class AuthController {
     @Autowired
-    private UserRepository userRepository;
+    private UserService userService;
     @Autowired
-    private RoleRepository roleRepository;
+    private RoleService roleService;
     @Autowired
     private PasswordEncoder passwordEncoder;
     @Autowired
@@ -42,6 +45,10 @@ public class AuthController {
     private AuthenticationManager authenticationManager;
     @Autowired
     private final RefreshTokenService refreshTokenService;
+    @Autowired
+    private final TokenRevocationList tokenRevocationList;
+    @Autowired
+    private final LoginAttemptLimiter loginAttemptLimiter;
 
     @Value("${spring.app.refreshTokenCookieName:refreshToken}")
     private String refreshTokenCookieName;
@@ -49,22 +56,30 @@ public class AuthController {
     @Value("${spring.app.refreshTokenExpirationMs}")
     private long refreshTokenExpirationMs;
 
-    public AuthController(UserRepository userRepository, RoleRepository roleRepository,
+    public AuthController(UserService userService, RoleService roleService,
                           PasswordEncoder passwordEncoder, JwtUtils jwtUtils,
                           AuthenticationManager authenticationManager,
-                          RefreshTokenService refreshTokenService) {
-        this.userRepository = userRepository;
-        this.roleRepository = roleRepository;
+                          RefreshTokenService refreshTokenService,
+                          TokenRevocationList tokenRevocationList,
+                          LoginAttemptLimiter loginAttemptLimiter) {
+        this.userService = userService;
+        this.roleService = roleService;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtils = jwtUtils;
         this.authenticationManager = authenticationManager;
         this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationList = tokenRevocationList;
+        this.loginAttemptLimiter = loginAttemptLimiter;
     }
 
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest,
                                               HttpServletRequest request,
                                               HttpServletResponse response) {
+        if (!loginAttemptLimiter.tryAcquire(loginRequest.getUsername(), request.getRemoteAddr())) {
+            return tooManyRequests("Too many login attempts, try again later");
+        }
+
         Authentication authentication;
         try {
             authentication = authenticationManager.authenticate(
@@ -73,13 +88,20 @@ public class AuthController {
                             loginRequest.getPassword()
                     )
             );
+        } catch (PasswordHashingRejectedException e) {
+            return tooManyRequests(e.getMessage());
         } catch (AuthenticationException e) {
+            // unknown users are hashed too (timing attack mitigation), that rejection arrives wrapped
+            if (e.getCause() instanceof PasswordHashingRejectedException rejected) {
+                return tooManyRequests(rejected.getMessage());
+            }
             Map<String, Object> map = new HashMap<>();
             map.put("message", "Bad credentials");
             map.put("status", false);
             return new ResponseEntity<>(map, HttpStatus.UNAUTHORIZED);
         }
 
+        loginAttemptLimiter.succeeded(loginRequest.getUsername(), request.getRemoteAddr());
         SecurityContextHolder.getContext().setAuthentication(authentication);
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
 
@@ -110,13 +132,17 @@ public class AuthController {
     }
 
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@RequestBody RegisterRequest registerRequest) {
+    public ResponseEntity<?> registerUser(@RequestBody RegisterRequest registerRequest,
+                                          HttpServletRequest request) {
         if (registerRequest.getUsername() == null || registerRequest.getPassword() == null) {
             return ResponseEntity
                     .status(HttpStatus.BAD_REQUEST)
                     .body("Username and password are required");
         }
-        if (userRepository.findByUsername(registerRequest.getUsername()).isPresent()) {
+        if (!loginAttemptLimiter.tryAcquire(null, request.getRemoteAddr())) {
+            return tooManyRequests("Too many attempts, try again later");
+        }
+        if (userService.findByUsername(registerRequest.getUsername()).isPresent()) {
             return ResponseEntity
                     .status(HttpStatus.CONFLICT)
                     .body("Username is already taken");
@@ -124,14 +150,18 @@ public class AuthController {
 
         User user = new User();
         user.setUsername(registerRequest.getUsername());
-        user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
+        try {
+            user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
+        } catch (PasswordHashingRejectedException e) {
+            return tooManyRequests(e.getMessage());
+        }
 
-        Role userRole = roleRepository.findByName("USER")
+        Role userRole = roleService.findByName("USER")
                 .orElseThrow(() -> new RuntimeException("Role USER not found"));
 
         user.getRoles().add(userRole);
 
-        userRepository.save(user);
+        userService.createUser(user);
 
         return ResponseEntity.ok(new RegisterResponse(
                 "User successfully registered",
@@ -202,6 +232,7 @@ public class AuthController {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             if (auth != null && auth.isAuthenticated()) {
                 refreshTokenService.deleteAllUserTokens(auth.getName());
+                tokenRevocationList.revokeAll(auth.getName());
             }
         } else if (refreshToken != null) {
             refreshTokenService.deleteToken(refreshToken);
@@ -220,6 +251,15 @@ public class AuthController {
         return ResponseEntity.ok(new MessageResponse("Logged out successfully"));
     }
 
+    private ResponseEntity<?> tooManyRequests(String message) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("message", message);
+        map.put("status", false);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", String.valueOf(loginAttemptLimiter.windowSeconds()))
+                .body(map);
+    }
+
     private void addRefreshTokenCookie(HttpServletResponse response, String token) {
         ResponseCookie cookie = ResponseCookie.from(refreshTokenCookieName, token)
                 .httpOnly(true)
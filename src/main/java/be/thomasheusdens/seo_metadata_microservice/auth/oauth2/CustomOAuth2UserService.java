@@ -1,13 +1,15 @@
 package be.thomasheusdens.seo_metadata_microservice.auth.oauth2;
 
+import be.thomasheusdens.seo_metadata_microservice.security.PasswordHashingRejectedException;
 import be.thomasheusdens.seo_metadata_microservice.user.Role;
-import be.thomasheusdens.seo_metadata_microservice.user.RoleRepository;
+import be.thomasheusdens.seo_metadata_microservice.user.RoleService;
 import be.thomasheusdens.seo_metadata_microservice.user.User;
-import be.thomasheusdens.seo_metadata_microservice.user.UserRepository;
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
 
@@ -16,17 +18,17 @@ import java.util.UUID;
 @Service
 public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 
-    private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final UserService userService;
+    private final RoleService roleService;
     private final PasswordEncoder passwordEncoder;
 
     public CustomOAuth2UserService(
-            UserRepository userRepository,
-            RoleRepository roleRepository,
+            UserService userService,
+            RoleService roleService,
             PasswordEncoder passwordEncoder
     ) {
-        this.userRepository = userRepository;
-        this.roleRepository = roleRepository;
+        this.userService = userService;
+        this.roleService = roleService;
         this.passwordEncoder = passwordEncoder;
     }
 
@@ -40,19 +42,24 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
             throw new OAuth2AuthenticationException("Email not provided by provider");
         }
 
-        User user = userRepository.findByUsername(email).orElse(null);
+        User user = userService.findByUsername(email).orElse(null);
 
         if (user == null) {
             // NEW USER → Create it
             user = new User();
             user.setUsername(email);
-            user.setPassword(passwordEncoder.encode(UUID.randomUUID().toString())); // dummy password
+            try {
+                user.setPassword(passwordEncoder.encode(UUID.randomUUID().toString())); // dummy password
+            } catch (PasswordHashingRejectedException e) {
+                // a login burst: fail this login like any other instead of answering 500
+                throw new OAuth2AuthenticationException(new OAuth2Error("temporarily_unavailable"), e.getMessage(), e);
+            }
 
-            Role userRole = roleRepository.findByName("USER")
+            Role userRole = roleService.findByName("USER")
                     .orElseThrow(() -> new RuntimeException("Role USER not found"));
             user.getRoles().add(userRole);
 
-            userRepository.save(user);
+            userService.createUser(user);
         }
 
         return oauthUser;
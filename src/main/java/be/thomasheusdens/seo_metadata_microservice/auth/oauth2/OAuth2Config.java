@@ -1,7 +1,7 @@
 package be.thomasheusdens.seo_metadata_microservice.auth.oauth2;
 
-import be.thomasheusdens.seo_metadata_microservice.user.RoleRepository;
-import be.thomasheusdens.seo_metadata_microservice.user.UserRepository;
+import be.thomasheusdens.seo_metadata_microservice.user.RoleService;
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -14,10 +14,10 @@ public class OAuth2Config {
 
     @Bean
     public OAuth2UserService<OAuth2UserRequest, OAuth2User> customOAuth2UserService(
-            UserRepository userRepository,
-            RoleRepository roleRepository,
+            UserService userService,
+            RoleService roleService,
             PasswordEncoder passwordEncoder
     ) {
-        return new CustomOAuth2UserService(userRepository, roleRepository, passwordEncoder);
+        return new CustomOAuth2UserService(userService, roleService, passwordEncoder);
     }
 }
\ No newline at end of file
@@ -0,0 +1,408 @@
+package be.thomasheusdens.seo_metadata_microservice.auth.refresh;
+
+import be.thomasheusdens.seo_metadata_microservice.user.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps refresh tokens in memory and persists changes to {@code refresh_tokens} in batches (write-behind), so a
+ * refresh is a map lookup and a swap instead of three database statements.
+ * <p>
+ * Per-user changes are serialized by a lock stripe chosen from the user id, and each queues its write while holding
+ * it, so writes reach the database in the order they were applied in memory; lookups by token are lock-free.
+ * Active tokens are loaded at startup and pending writes are flushed on shutdown. A flush that fails is retried on
+ * the next ones, ahead of newer writes; after {@value #MAX_FLUSH_ATTEMPTS} failed attempts its writes are applied one by
+ * one, and a write is only dropped (and logged) when it fails while the table still answers. While the database stays
+ * down nothing is dropped: flushes back off and keep retrying in order. Tokens carry the user as loaded at
+ * login, so with this store role changes reach refreshed access tokens after the next login.
+ * Single instance only: other nodes don't see tokens that are only in this node's memory.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.app.refreshTokenStore", havingValue = "memory")
+public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryRefreshTokenStore.class);
+
+    private static final int STRIPES = 64;
+    private static final int MAX_FLUSH_BATCH = 5000;
+    private static final int MAX_FLUSH_ATTEMPTS = 5;
+    // flushes skipped after a failed one double from 1 up to 2^MAX_BACKOFF_EXPONENT
+    private static final int MAX_BACKOFF_EXPONENT = 6;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<String, RefreshToken> tokens = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<String>> tokensByUser = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    private final LinkedBlockingQueue<Write> pending = new LinkedBlockingQueue<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // guarded by flushLock: writes of a failed flush, persisted before anything still pending
+    private final List<Write> retry = new ArrayList<>();
+    private int failedFlushes;
+    private int skippedFlushes;
+    private final Counter failedWrites;
+
+    public InMemoryRefreshTokenStore(RefreshTokenRepository refreshTokenRepository, JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager, MeterRegistry registry) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        Gauge.builder("auth.refresh.writebehind.queue", pending, LinkedBlockingQueue::size)
+                .description("Refresh token writes waiting to be persisted")
+                .register(registry);
+        this.failedWrites = Counter.builder("auth.refresh.writebehind.failed")
+                .description("Refresh token writes dropped after a database error")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void load() {
+        for (RefreshToken token : refreshTokenRepository.findAllActiveWithUser(Instant.now())) {
+            index(token);
+        }
+        logger.info("Loaded {} active refresh tokens", tokens.size());
+    }
+
+    // -------- STORE --------
+
+    @Override
+    public RefreshToken save(RefreshToken token) {
+        ReentrantLock lock = stripe(token.getUser());
+        lock.lock();
+        try {
+            index(token);
+            pending.add(new Insert(token));
+        } finally {
+            lock.unlock();
+        }
+        return token;
+    }
+
+    @Override
+    public Optional<RefreshToken> findByToken(String token) {
+        return Optional.ofNullable(tokens.get(token));
+    }
+
+    @Override
+    public void delete(RefreshToken token) {
+        deleteByToken(token.getToken());
+    }
+
+    @Override
+    public void deleteByToken(String token) {
+        RefreshToken existing = tokens.get(token);
+        if (existing == null) {
+            pending.add(new Delete(token));
+            return;
+        }
+        ReentrantLock lock = stripe(existing.getUser());
+        lock.lock();
+        try {
+            unindex(existing);
+            pending.add(new Delete(token));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long countByUser(User user) {
+        Set<String> userTokens = tokensByUser.get(user.getId());
+        return userTokens == null ? 0 : userTokens.size();
+    }
+
+    @Override
+    public void deleteAllByUser(User user) {
+        ReentrantLock lock = stripe(user);
+        lock.lock();
+        try {
+            Set<String> userTokens = tokensByUser.remove(user.getId());
+            if (userTokens != null) {
+                userTokens.forEach(tokens::remove);
+            }
+            pending.add(new DeleteUser(user.getId()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void evictOldest(User user, int keep) {
+        ReentrantLock lock = stripe(user);
+        lock.lock();
+        try {
+            Set<String> userTokens = tokensByUser.get(user.getId());
+            if (userTokens == null || userTokens.size() <= keep) {
+                return;
+            }
+            List<RefreshToken> oldestFirst = userTokens.stream()
+                    .map(tokens::get)
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparing(RefreshToken::getCreatedAt))
+                    .toList();
+            for (RefreshToken token : oldestFirst.subList(0, Math.max(0, oldestFirst.size() - keep))) {
+                unindex(token);
+                pending.add(new Delete(token.getToken()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void evictExpired(Instant now) {
+        for (RefreshToken token : tokens.values()) {
+            if (token.getExpiryDate().isBefore(now)) {
+                ReentrantLock lock = stripe(token.getUser());
+                lock.lock();
+                try {
+                    unindex(token);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public RefreshToken rotate(RefreshToken oldToken, RefreshToken newToken) {
+        ReentrantLock lock = stripe(oldToken.getUser());
+        lock.lock();
+        try {
+            if (!tokens.remove(oldToken.getToken(), oldToken)) {
+                throw new TokenRefreshException("Refresh token was already used");
+            }
+            unindex(oldToken);
+            index(newToken);
+            pending.add(new Delete(oldToken.getToken()));
+            pending.add(new Insert(newToken));
+        } finally {
+            lock.unlock();
+        }
+        return newToken;
+    }
+
+    private void index(RefreshToken token) {
+        tokens.put(token.getToken(), token);
+        tokensByUser.computeIfAbsent(token.getUser().getId(), id -> ConcurrentHashMap.newKeySet()).add(token.getToken());
+    }
+
+    private void unindex(RefreshToken token) {
+        tokens.remove(token.getToken(), token);
+        tokensByUser.computeIfPresent(token.getUser().getId(), (id, userTokens) -> {
+            userTokens.remove(token.getToken());
+            return userTokens.isEmpty() ? null : userTokens;
+        });
+    }
+
+    private ReentrantLock stripe(User user) {
+        return stripes[Math.floorMod(Long.hashCode(user.getId()), STRIPES)];
+    }
+
+    // -------- WRITE-BEHIND --------
+    // Inserts and deletes of one batch are coalesced (a token created and rotated away before the flush is never
+    // written) and sent as JDBC batches; the per-user delete flushes what came before it to keep the order.
+    // Each such segment is one transaction, so a failed segment can be retried as a whole.
+
+    @Scheduled(fixedDelayString = "${spring.app.refreshTokenFlushMs:500}")
+    public void flush() {
+        if (flushLock.tryLock()) {
+            try {
+                if (skippedFlushes > 0) {
+                    skippedFlushes--;
+                    return;
+                }
+                drain();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flushLock.lock();
+        try {
+            drain();
+            if (!retry.isEmpty()) {
+                drop(retry, "the database is still unavailable at shutdown");
+                retry.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void drain() {
+        List<Write> writes = new ArrayList<>(retry);
+        retry.clear();
+        while (!writes.isEmpty() || pending.drainTo(writes, MAX_FLUSH_BATCH) > 0) {
+            List<Write> failed = apply(writes);
+            if (!failed.isEmpty() && ++failedFlushes >= MAX_FLUSH_ATTEMPTS) {
+                // a segment that keeps failing may hold one write the database rejects: isolate it
+                failed = applyOneByOne(failed);
+            }
+            if (!failed.isEmpty()) {
+                // the database is likely down: stop here and keep the order for the next flush
+                retry.addAll(failed);
+                if (failedFlushes >= MAX_FLUSH_ATTEMPTS) {
+                    skippedFlushes = 1 << Math.min(failedFlushes - MAX_FLUSH_ATTEMPTS, MAX_BACKOFF_EXPONENT);
+                }
+                return;
+            }
+            failedFlushes = 0;
+            writes.clear();
+        }
+    }
+
+    // Returns the writes from the first failed segment on, in order; empty when everything was persisted
+    private List<Write> apply(List<Write> writes) {
+        int from = 0;
+        for (int i = 0; i < writes.size(); i++) {
+            if (writes.get(i) instanceof DeleteUser || i == writes.size() - 1) {
+                if (!persist(writes.subList(from, i + 1))) {
+                    return new ArrayList<>(writes.subList(from, writes.size()));
+                }
+                from = i + 1;
+            }
+        }
+        return List.of();
+    }
+
+    // Drops the writes that fail while the table answers; returns those from the first outage on, in order
+    private List<Write> applyOneByOne(List<Write> writes) {
+        List<Write> dropped = new ArrayList<>();
+        for (int i = 0; i < writes.size(); i++) {
+            if (!persist(List.of(writes.get(i)))) {
+                if (!reachable()) {
+                    drop(dropped, "the database rejected them");
+                    return new ArrayList<>(writes.subList(i, writes.size()));
+                }
+                dropped.add(writes.get(i));
+            }
+        }
+        drop(dropped, "the database rejected them");
+        return List.of();
+    }
+
+    private boolean reachable() {
+        try {
+            jdbcTemplate.queryForList("SELECT id FROM refresh_tokens WHERE 1 = 0", Long.class);
+            return true;
+        } catch (DataAccessException e) {
+            return false;
+        }
+    }
+
+    private boolean persist(List<Write> segment) {
+        Map<String, RefreshToken> inserts = new LinkedHashMap<>();
+        Set<String> deletes = new LinkedHashSet<>();
+        Long deletedUser = null;
+        for (Write write : segment) {
+            switch (write) {
+                case Insert insert -> inserts.put(insert.token().getToken(), insert.token());
+                case Delete delete -> {
+                    if (inserts.remove(delete.token()) == null) {
+                        deletes.add(delete.token());
+                    }
+                }
+                case DeleteUser deleteUser -> deletedUser = deleteUser.userId();
+            }
+        }
+
+        Long userId = deletedUser;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!deletes.isEmpty()) {
+                    jdbcTemplate.batchUpdate("DELETE FROM refresh_tokens WHERE token = ?",
+                            deletes.stream().map(token -> new Object[]{token}).toList());
+                }
+                if (!inserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(
+                            "INSERT INTO refresh_tokens (token, user_id, expiry_date, device_info, created_at) VALUES (?, ?, ?, ?, ?)",
+                            inserts.values().stream().map(t -> new Object[]{
+                                    t.getToken(), t.getUser().getId(), Timestamp.from(t.getExpiryDate()),
+                                    t.getDeviceInfo(), Timestamp.from(t.getCreatedAt())
+                            }).toList());
+                }
+                if (userId != null) {
+                    jdbcTemplate.update("DELETE FROM refresh_tokens WHERE user_id = ?", userId);
+                }
+            });
+            return true;
+        } catch (DataAccessException | TransactionException e) {
+            logger.warn("Could not persist {} refresh token writes, will retry: {}", segment.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void drop(List<Write> writes, String reason) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        failedWrites.increment(writes.size());
+        logger.error("Dropped {} refresh token writes, {}: {}", writes.size(), reason,
+                writes.stream().map(Write::describe).toList());
+    }
+
+    // Tokens are credentials: logs only show their last characters
+    private static String mask(String token) {
+        return "..." + token.substring(Math.max(0, token.length() - 6));
+    }
+
+    private sealed interface Write permits Insert, Delete, DeleteUser {
+        String describe();
+    }
+
+    private record Insert(RefreshToken token) implements Write {
+        public String describe() {
+            return "insert " + mask(token.getToken()) + " of user " + token.getUser().getId();
+        }
+    }
+
+    private record Delete(String token) implements Write {
+        public String describe() {
+            return "delete " + mask(token);
+        }
+    }
+
+    private record DeleteUser(Long userId) implements Write {
+        public String describe() {
+            return "delete all of user " + userId;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package be.thomasheusdens.seo_metadata_microservice.auth.refresh;
+
+import be.thomasheusdens.seo_metadata_microservice.user.User;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "spring.app.refreshTokenStore", havingValue = "jpa", matchIfMissing = true)
+public class JpaRefreshTokenStore implements RefreshTokenStore {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    public JpaRefreshTokenStore(RefreshTokenRepository refreshTokenRepository) {
+        this.refreshTokenRepository = refreshTokenRepository;
+    }
+
+    @Override
+    public RefreshToken save(RefreshToken token) {
+        return refreshTokenRepository.save(token);
+    }
+
+    @Override
+    public Optional<RefreshToken> findByToken(String token) {
+        return refreshTokenRepository.findByToken(token);
+    }
+
+    @Override
+    public void delete(RefreshToken token) {
+        refreshTokenRepository.delete(token);
+    }
+
+    @Override
+    @Transactional
+    public void deleteByToken(String token) {
+        refreshTokenRepository.deleteByToken(token);
+    }
+
+    @Override
+    public long countByUser(User user) {
+        return refreshTokenRepository.countByUser(user);
+    }
+
+    @Override
+    @Transactional
+    public void deleteAllByUser(User user) {
+        refreshTokenRepository.deleteAllByUser(user);
+    }
+
+    @Override
+    @Transactional
+    public void evictOldest(User user, int keep) {
+        List<Long> ids = refreshTokenRepository.findSessionIdsBeyond(user, keep);
+        if (!ids.isEmpty()) {
+            refreshTokenRepository.deleteAllByIdIn(ids);
+        }
+    }
+
+    @Override
+    public void evictExpired(Instant now) {
+        // nothing cached, RefreshTokenPurger deletes the rows
+    }
+
+    @Override
+    @Transactional
+    public RefreshToken rotate(RefreshToken oldToken, RefreshToken newToken) {
+        refreshTokenRepository.delete(oldToken);
+        return refreshTokenRepository.save(newToken);
+    }
+}
@@ -10,7 +10,10 @@ import java.time.Instant;
 @Entity
 @Getter
 @Setter
-@Table(name = "refresh_tokens")
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_expiry_date", columnList = "expiry_date"),
+        @Index(name = "idx_refresh_tokens_user_created", columnList = "user_id, created_at")
+})
 public class RefreshToken {
 
     @Id
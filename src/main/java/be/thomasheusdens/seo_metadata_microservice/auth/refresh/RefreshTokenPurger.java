@@ -0,0 +1,96 @@
+package be.thomasheusdens.seo_metadata_microservice.auth.refresh;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes expired refresh tokens in batches of {@code batchSize} rows, one short transaction per batch with a pause
+ * in between, so the purge never holds locks on a large range of {@code refresh_tokens} or floods the binlog.
+ */
+@Component
+public class RefreshTokenPurger {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenPurger.class);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long pauseMs;
+    private final Counter deleted;
+    private final Timer duration;
+
+    public RefreshTokenPurger(RefreshTokenRepository refreshTokenRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${spring.app.refreshTokenPurge.batchSize:1000}") int batchSize,
+                              @Value("${spring.app.refreshTokenPurge.pauseMs:100}") long pauseMs,
+                              MeterRegistry registry) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("refreshTokenPurge.batchSize must be positive");
+        }
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+        this.deleted = Counter.builder("auth.refresh.purge.deleted")
+                .description("Expired refresh tokens deleted by the purge job")
+                .register(registry);
+        this.duration = Timer.builder("auth.refresh.purge.duration")
+                .description("Time taken by a full purge run")
+                .register(registry);
+    }
+
+    /**
+     * Deletes every token that expired before {@code now} and returns the number of rows deleted.
+     */
+    public long purge(Instant now) {
+        long start = System.nanoTime();
+        long total = 0;
+        int batches = 0;
+
+        while (true) {
+            Integer count = transactionTemplate.execute(status -> {
+                List<Long> ids = refreshTokenRepository.findExpiredIds(now, PageRequest.of(0, batchSize));
+                return ids.isEmpty() ? 0 : refreshTokenRepository.deleteAllByIdIn(ids);
+            });
+            if (count == null || count == 0) {
+                break;
+            }
+            total += count;
+            batches++;
+            deleted.increment(count);
+            if (count < batchSize || !pause()) {
+                break;
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        duration.record(elapsed, TimeUnit.NANOSECONDS);
+        logger.info("Purged {} expired refresh tokens in {} batches ({} ms)", total, batches, elapsed / 1_000_000);
+        return total;
+    }
+
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package be.thomasheusdens.seo_metadata_microservice.auth.refresh;
 
 import be.thomasheusdens.seo_metadata_microservice.user.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,8 +17,15 @@ public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long
 
     Optional<RefreshToken> findByToken(String token);
 
+    @Query("SELECT rt FROM RefreshToken rt JOIN FETCH rt.user WHERE rt.expiryDate > :now")
+    List<RefreshToken> findAllActiveWithUser(@Param("now") Instant now);
+
     long countByUser(User user);
 
+    // Served by idx_refresh_tokens_user_created: skips the newest :keep sessions and returns the rest
+    @Query("SELECT rt.id FROM RefreshToken rt WHERE rt.user = :user ORDER BY rt.createdAt DESC, rt.id DESC OFFSET :keep ROWS")
+    List<Long> findSessionIdsBeyond(@Param("user") User user, @Param("keep") int keep);
+
     @Modifying
     @Query("DELETE FROM RefreshToken rt WHERE rt.token = :token")
     void deleteByToken(@Param("token") String token);
@@ -25,7 +34,11 @@ public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long
     @Query("DELETE FROM RefreshToken rt WHERE rt.user = :user")
     void deleteAllByUser(@Param("user") User user);
 
+    // Served by idx_refresh_tokens_expiry_date; the page size bounds how many rows one purge batch deletes
+    @Query("SELECT rt.id FROM RefreshToken rt WHERE rt.expiryDate < :now ORDER BY rt.expiryDate")
+    List<Long> findExpiredIds(@Param("now") Instant now, Pageable page);
+
     @Modifying
-    @Query("DELETE FROM RefreshToken rt WHERE rt.expiryDate < :now")
-    void deleteAllExpired(@Param("now") Instant now);
+    @Query("DELETE FROM RefreshToken rt WHERE rt.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") List<Long> ids);
 }
@@ -1,12 +1,14 @@
 package be.thomasheusdens.seo_metadata_microservice.auth.refresh;
 
+import be.thomasheusdens.seo_metadata_microservice.scheduling.JobLockService;
 import be.thomasheusdens.seo_metadata_microservice.user.User;
-import be.thomasheusdens.seo_metadata_microservice.user.UserRepository;
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
@@ -20,25 +22,31 @@ public class RefreshTokenService {
     @Value("${spring.app.maxSessionsPerUser:5}")
     private int maxSessionsPerUser;
 
-    private final RefreshTokenRepository refreshTokenRepository;
-    private final UserRepository userRepository;
-
-    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
-                               UserRepository userRepository) {
-        this.refreshTokenRepository = refreshTokenRepository;
-        this.userRepository = userRepository;
+    private static final String PURGE_JOB = "refresh-token-purge";
+    private static final Duration PURGE_LEASE = Duration.ofHours(1);
+
+    private final RefreshTokenStore refreshTokenStore;
+    private final UserService userService;
+    private final RefreshTokenPurger refreshTokenPurger;
+    private final JobLockService jobLockService;
+
+    public RefreshTokenService(RefreshTokenStore refreshTokenStore,
+                               UserService userService,
+                               RefreshTokenPurger refreshTokenPurger,
+                               JobLockService jobLockService) {
+        this.refreshTokenStore = refreshTokenStore;
+        this.userService = userService;
+        this.refreshTokenPurger = refreshTokenPurger;
+        this.jobLockService = jobLockService;
     }
 
     @Transactional
     public RefreshToken createRefreshToken(String username, String deviceInfo) {
-        User user = userRepository.findByUsername(username)
+        User user = userService.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
 
-        long activeCount = refreshTokenRepository.countByUser(user);
-
-        if (activeCount >= maxSessionsPerUser) {
-            refreshTokenRepository.deleteAllByUser(user);
-        }
+        // Make room for the new session by ending the oldest ones, not every session of the user
+        refreshTokenStore.evictOldest(user, Math.max(0, maxSessionsPerUser - 1));
 
         RefreshToken refreshToken = new RefreshToken();
         refreshToken.setUser(user);
@@ -47,39 +55,35 @@ public class RefreshTokenService {
         refreshToken.setDeviceInfo(deviceInfo);
         refreshToken.setCreatedAt(Instant.now());
 
-        return refreshTokenRepository.save(refreshToken);
+        return refreshTokenStore.save(refreshToken);
     }
 
     public Optional<RefreshToken> findByToken(String token) {
-        return refreshTokenRepository.findByToken(token);
+        return refreshTokenStore.findByToken(token);
     }
 
-    @Transactional
     public RefreshToken verifyExpiration(RefreshToken token) {
         if (token.getExpiryDate().isBefore(Instant.now())) {
-            refreshTokenRepository.delete(token);
+            refreshTokenStore.delete(token);
             throw new TokenRefreshException("Refresh token was expired. Please login again.");
         }
         return token;
     }
 
-    @Transactional
     public void deleteToken(String token) {
-        refreshTokenRepository.deleteByToken(token);
+        refreshTokenStore.deleteByToken(token);
     }
 
     @Transactional
     public void deleteAllUserTokens(String username) {
-        User user = userRepository.findByUsername(username)
+        User user = userService.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found: " + username));
 
-        refreshTokenRepository.deleteAllByUser(user);
+        refreshTokenStore.deleteAllByUser(user);
     }
 
-    @Transactional
+    // Transactions are the store's concern: the in-memory store doesn't touch the database here
     public RefreshToken rotateToken(RefreshToken oldToken) {
-        refreshTokenRepository.delete(oldToken);
-
         RefreshToken newToken = new RefreshToken();
         newToken.setUser(oldToken.getUser());
         newToken.setToken(UUID.randomUUID().toString());
@@ -87,12 +91,14 @@ public class RefreshTokenService {
         newToken.setDeviceInfo(oldToken.getDeviceInfo());
         newToken.setCreatedAt(Instant.now());
 
-        return refreshTokenRepository.save(newToken);
+        return refreshTokenStore.rotate(oldToken, newToken);
     }
 
+    // Every node evicts its own in-memory tokens; only the node holding the lease deletes the rows
     @Scheduled(cron = "0 0 2 * * ?")
-    @Transactional
     public void cleanupExpiredTokens() {
-        refreshTokenRepository.deleteAllExpired(Instant.now());
+        Instant now = Instant.now();
+        refreshTokenStore.evictExpired(now);
+        jobLockService.runExclusively(PURGE_JOB, PURGE_LEASE, () -> refreshTokenPurger.purge(now));
     }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package be.thomasheusdens.seo_metadata_microservice.auth.refresh;
+
+import be.thomasheusdens.seo_metadata_microservice.user.User;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Storage of refresh tokens used by {@link RefreshTokenService}. Selected with {@code spring.app.refreshTokenStore}:
+ * {@code jpa} (default, every call goes to the database) or {@code memory} (in-process, persisted write-behind).
+ */
+public interface RefreshTokenStore {
+
+    RefreshToken save(RefreshToken token);
+
+    Optional<RefreshToken> findByToken(String token);
+
+    void delete(RefreshToken token);
+
+    void deleteByToken(String token);
+
+    long countByUser(User user);
+
+    void deleteAllByUser(User user);
+
+    /**
+     * Deletes the oldest sessions of {@code user} so that at most {@code keep} remain.
+     */
+    void evictOldest(User user, int keep);
+
+    /**
+     * Drops expired tokens the store holds outside the database. The rows themselves are removed by
+     * {@link RefreshTokenPurger}.
+     */
+    void evictExpired(Instant now);
+
+    /**
+     * Replaces {@code oldToken} by {@code newToken} atomically.
+     */
+    RefreshToken rotate(RefreshToken oldToken, RefreshToken newToken);
+}
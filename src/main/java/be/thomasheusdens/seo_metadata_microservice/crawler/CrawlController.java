@@ -0,0 +1,63 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+public class CrawlController {
+
+    private final SiteCrawler siteCrawler;
+    private final UserService userService;
+    private final CrawlSlots crawlSlots;
+
+    public CrawlController(SiteCrawler siteCrawler, UserService userService, CrawlSlots crawlSlots) {
+        this.siteCrawler = siteCrawler;
+        this.userService = userService;
+        this.crawlSlots = crawlSlots;
+    }
+
+    // Streams a "start" event with the crawl id, a "page" event per crawled page and a final "summary" event;
+    // the request thread is released right away. Answers 429 when the user or the server runs too many crawls.
+    @PreAuthorize("isAuthenticated()")
+    @PostMapping(value = "/api/seo/crawl", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> crawl(@RequestBody CrawlRequest request, Principal principal) {
+        Optional<CrawlSlots.Slot> acquired = crawlSlots.tryAcquire(principal == null ? "" : principal.getName());
+        if (acquired.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+        CrawlSlots.Slot slot = acquired.get();
+        CrawlPlan plan;
+        try {
+            plan = siteCrawler.plan(request, userService.currentUserId(principal));
+        } catch (RuntimeException e) {
+            slot.close();
+            throw e;
+        }
+
+        SseEmitter emitter = new SseEmitter(0L);
+        Thread.ofVirtual().name("crawl-" + plan.host()).start(() -> {
+            try (slot) {
+                emitter.send(SseEmitter.event().name("start")
+                        .data(Map.of("crawlId", plan.crawlId()), MediaType.APPLICATION_JSON));
+                CrawlSummary summary = siteCrawler.crawl(plan,
+                        page -> emitter.send(SseEmitter.event().name("page").data(page, MediaType.APPLICATION_JSON)));
+                emitter.send(SseEmitter.event().name("summary").data(summary, MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return ResponseEntity.ok(emitter);
+    }
+}
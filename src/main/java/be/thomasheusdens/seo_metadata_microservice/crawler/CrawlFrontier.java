@@ -0,0 +1,58 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * URLs of one crawl: the queue of pages still to visit plus the set of every URL seen so far. Thread-safe.
+ */
+public interface CrawlFrontier extends AutoCloseable {
+
+    /**
+     * Longest URL a frontier accepts, in UTF-8 bytes; callers filter longer links before pushing.
+     */
+    int MAX_URL_BYTES = 8192;
+
+    static boolean fits(String url) {
+        // UTF-8 takes at most 3 bytes per char, so most URLs are never encoded here
+        return url.length() * 3 <= MAX_URL_BYTES || url.getBytes(StandardCharsets.UTF_8).length <= MAX_URL_BYTES;
+    }
+
+    /**
+     * Records {@code url} as seen; returns false when it was seen before.
+     */
+    boolean markSeen(String url);
+
+    /**
+     * Queues {@code url}; throws {@link IllegalArgumentException} when it is longer than {@link #MAX_URL_BYTES}.
+     */
+    void push(String url, int depth);
+
+    CrawlTarget poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * The page was visited and its result delivered. A persistent frontier won't hand it out again after a restart.
+     */
+    void done(CrawlTarget target);
+
+    /**
+     * Pages pushed over the whole life of the crawl, across restarts.
+     */
+    long pushed();
+
+    /**
+     * Pages pushed but not done yet.
+     */
+    long size();
+
+    /**
+     * The crawl completed: drops whatever the frontier keeps outside the heap.
+     */
+    void finish();
+
+    /**
+     * The crawl stopped early: releases the frontier but keeps it for a later resume when it is persistent.
+     */
+    @Override
+    void close();
+}
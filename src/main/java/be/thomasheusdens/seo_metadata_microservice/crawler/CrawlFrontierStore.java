@@ -0,0 +1,19 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import java.util.Optional;
+
+/**
+ * Creates the frontier of each crawl. Selected with {@code spring.app.crawl.frontier.store}: {@code memory} (default,
+ * queue and seen set on the heap) or {@code disk} (memory-mapped files, flat heap, crawls resumable after a restart).
+ */
+public interface CrawlFrontierStore {
+
+    CrawlFrontier create(CrawlPlan plan);
+
+    /**
+     * The plan of an interrupted crawl that can be resumed, with {@code resumed} set.
+     */
+    Optional<CrawlPlan> findResumable(String crawlId);
+
+    CrawlFrontier resume(CrawlPlan plan);
+}
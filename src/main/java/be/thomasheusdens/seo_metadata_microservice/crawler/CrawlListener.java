@@ -0,0 +1,10 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+/**
+ * Receives the result of every crawled page as soon as it is analysed. Called from the crawl workers, so possibly
+ * concurrently; an exception thrown here (e.g. the client went away) cancels the crawl.
+ */
+@FunctionalInterface
+public interface CrawlListener {
+    void onPage(CrawlPageResult page) throws Exception;
+}
@@ -0,0 +1,17 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisResult;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of one crawled page: its analysis, or the error that stopped it.
+ */
+@Getter
+@AllArgsConstructor
+public class CrawlPageResult {
+    private String url;
+    private int depth;
+    private SeoAnalysisResult result;
+    private String error;
+}
@@ -0,0 +1,13 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataField;
+
+import java.util.Set;
+
+/**
+ * A validated crawl request with its defaults resolved. {@code resumed} is set when the plan was read back from a
+ * {@link CrawlFrontierStore} to continue an interrupted crawl.
+ */
+public record CrawlPlan(String crawlId, Long userId, String seedUrl, String host, int maxDepth, int maxPages,
+                        int parallelism, Set<MetadataField> fields, boolean resumed) {
+}
@@ -0,0 +1,17 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.ExtractionMode;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class CrawlRequest {
+    private String seedUrl;
+    private Integer maxDepth;
+    private Integer maxPages;
+    private Integer parallelism;
+    private String fields;
+    private ExtractionMode mode = ExtractionMode.FULL;
+    private String resumeId;
+}
@@ -0,0 +1,72 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Caps the number of crawls and sitemap runs going at once, overall and per user; both share the limits. Every run
+ * holds a {@link Slot} until its stream is done; a request that finds no free slot is rejected instead of queued.
+ */
+@Component
+public class CrawlSlots {
+
+    private final int maxConcurrent;
+    private final int maxPerUser;
+    private final Map<String, Integer> running = new HashMap<>();
+    private int total;
+
+    public CrawlSlots(@Value("${spring.app.crawl.maxConcurrent:16}") int maxConcurrent,
+                      @Value("${spring.app.crawl.maxConcurrentPerUser:2}") int maxPerUser) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxPerUser = maxPerUser;
+    }
+
+    /**
+     * Returns a slot for {@code owner}, or empty when the overall or the owner's limit is reached.
+     */
+    public synchronized Optional<Slot> tryAcquire(String owner) {
+        int owned = running.getOrDefault(owner, 0);
+        if (total >= maxConcurrent || owned >= maxPerUser) {
+            return Optional.empty();
+        }
+        running.put(owner, owned + 1);
+        total++;
+        return Optional.of(new Slot(owner));
+    }
+
+    public synchronized int running() {
+        return total;
+    }
+
+    private synchronized void release(String owner) {
+        running.computeIfPresent(owner, (key, owned) -> owned == 1 ? null : owned - 1);
+        total--;
+    }
+
+    /**
+     * A held crawl slot; closing it more than once releases it once.
+     */
+    public final class Slot implements AutoCloseable {
+
+        private final String owner;
+        private boolean released;
+
+        private Slot(String owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void close() {
+            synchronized (CrawlSlots.this) {
+                if (!released) {
+                    released = true;
+                    release(owner);
+                }
+            }
+        }
+    }
+}
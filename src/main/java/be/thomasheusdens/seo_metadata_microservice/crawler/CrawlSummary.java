@@ -0,0 +1,29 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Totals of a finished crawl. {@code issuesByCheck} counts, per check label, the pages where it was not OK.
+ * {@code budgetExhausted} is true when same-host links were left unvisited because of {@code maxPages}. The totals of a
+ * resumed crawl cover the pages crawled since it was resumed.
+ */
+@Getter
+@AllArgsConstructor
+public class CrawlSummary {
+    private String crawlId;
+    private String seedUrl;
+    private int pagesCrawled;
+    private int pagesFailed;
+    private int maxDepthReached;
+    private long okCount;
+    private long warningCount;
+    private long criticalCount;
+    private Map<String, Long> issuesByCheck;
+    private boolean budgetExhausted;
+    private boolean cancelled;
+    private long durationMs;
+    private double pagesPerMinute;
+}
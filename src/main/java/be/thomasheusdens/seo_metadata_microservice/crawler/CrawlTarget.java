@@ -0,0 +1,7 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+/**
+ * A URL waiting in a {@link CrawlFrontier}. {@code position} identifies it inside a disk-backed frontier, -1 otherwise.
+ */
+public record CrawlTarget(String url, int depth, long position) {
+}
@@ -0,0 +1,369 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Frontier stored in a crawl directory, so its heap use doesn't depend on how many URLs it holds:
+ * <ul>
+ *     <li>{@code segment-N.dat}: append-only, memory-mapped files of fixed size holding the queue as
+ *     {@code [length][depth][UTF-8 url]} records. The length is written last, so a torn record reads as unwritten.</li>
+ *     <li>{@code seen.idx}: a {@link MappedSeenIndex} of every URL seen.</li>
+ *     <li>{@code state}: pages pushed, plus the position and sequence number of the oldest page not done yet.</li>
+ * </ul>
+ * Workers poll from a small in-memory head buffer, refilled from the segments. A page stays outstanding from the
+ * moment it is read until {@link #done}, and the resume point only moves past pages that are done, so a restart
+ * hands out again every page that was buffered or in flight (at-least-once, at most head buffer + workers pages).
+ * Segments behind the resume point are deleted.
+ * <p>
+ * The crawl follows a single host, so one queue serves it; there are no per-host sub-queues to balance.
+ */
+final class DiskCrawlFrontier implements CrawlFrontier {
+
+    private static final int RECORD_HEADER = 8;
+
+    private static final int STATE_PUSHED = 0;
+    private static final int STATE_COMMITTED_POSITION = 8;
+    private static final int STATE_COMMITTED_SEQUENCE = 16;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final int headCapacity;
+
+    private final Runnable onClose;
+    private final FileChannel lockChannel;
+    private final FileLock fileLock;
+    private final MappedByteBuffer state;
+    private final MappedSeenIndex seen;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final ArrayDeque<CrawlTarget> head = new ArrayDeque<>();
+    // position -> sequence number of every page read from disk and not done yet
+    private final TreeMap<Long, Long> outstanding = new TreeMap<>();
+
+    private MappedByteBuffer writeSegment;
+    private long writeSegmentIndex = -1;
+    private long writePosition;
+
+    private MappedByteBuffer readSegment;
+    private long readSegmentIndex = -1;
+    private long readPosition;
+    private long readSequence;
+
+    private long pushed;
+    private long committedPosition;
+    private long committedSequence;
+
+    DiskCrawlFrontier(Path dir, long segmentBytes, int headCapacity, long expectedUrls) {
+        this(dir, segmentBytes, headCapacity, expectedUrls, () -> {
+        });
+    }
+
+    /**
+     * @param onClose run once when the frontier is closed, or after its files are deleted by {@link #finish()}
+     */
+    DiskCrawlFrontier(Path dir, long segmentBytes, int headCapacity, long expectedUrls, Runnable onClose) {
+        if (segmentBytes < RECORD_HEADER + MAX_URL_BYTES || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must be between " + (RECORD_HEADER + MAX_URL_BYTES)
+                    + " and " + Integer.MAX_VALUE + " bytes");
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.headCapacity = headCapacity;
+        this.onClose = onClose;
+        try {
+            Files.createDirectories(dir);
+            lockChannel = FileChannel.open(dir.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            fileLock = tryLock(lockChannel);
+            if (fileLock == null) {
+                lockChannel.close();
+                throw new IllegalStateException("Crawl " + dir.getFileName() + " is already running");
+            }
+
+            state = map(dir.resolve("state"), 24);
+            pushed = state.getLong(STATE_PUSHED);
+            committedPosition = state.getLong(STATE_COMMITTED_POSITION);
+            committedSequence = state.getLong(STATE_COMMITTED_SEQUENCE);
+            readPosition = committedPosition;
+            readSequence = committedSequence;
+            writePosition = recoverWritePosition();
+
+            seen = new MappedSeenIndex(dir.resolve("seen.idx"), expectedUrls);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open crawl frontier " + dir, e);
+        }
+    }
+
+    @Override
+    public boolean markSeen(String url) {
+        lock.lock();
+        try {
+            return seen.add(url);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void push(String url, int depth) {
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_URL_BYTES) {
+            throw new IllegalArgumentException("URL longer than " + MAX_URL_BYTES + " bytes");
+        }
+        lock.lock();
+        try {
+            int length = RECORD_HEADER + bytes.length;
+            if (offset(writePosition) + length > segmentBytes) {
+                writePosition = (segment(writePosition) + 1) * segmentBytes;
+            }
+            MappedByteBuffer buffer = writeSegment(segment(writePosition));
+            int offset = offset(writePosition);
+            buffer.putInt(offset + 4, depth);
+            buffer.put(offset + RECORD_HEADER, bytes);
+            buffer.putInt(offset, bytes.length);
+            writePosition += length;
+
+            state.putLong(STATE_PUSHED, ++pushed);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CrawlTarget poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (true) {
+                if (head.isEmpty()) {
+                    refill();
+                }
+                CrawlTarget target = head.poll();
+                if (target != null) {
+                    return target;
+                }
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void done(CrawlTarget target) {
+        lock.lock();
+        try {
+            outstanding.remove(target.position());
+            Map.Entry<Long, Long> oldest = outstanding.firstEntry();
+            long position = oldest == null ? readPosition : oldest.getKey();
+            long sequence = oldest == null ? readSequence : oldest.getValue();
+            if (position == committedPosition) {
+                return;
+            }
+            long previousSegment = segment(committedPosition);
+            committedPosition = position;
+            committedSequence = sequence;
+            state.putLong(STATE_COMMITTED_POSITION, committedPosition);
+            state.putLong(STATE_COMMITTED_SEQUENCE, committedSequence);
+            for (long index = previousSegment; index < segment(committedPosition); index++) {
+                deleteSegment(index);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long pushed() {
+        lock.lock();
+        try {
+            return pushed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        lock.lock();
+        try {
+            return pushed - committedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void finish() {
+        boolean released = release();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete crawl frontier " + dir, e);
+        } finally {
+            if (released) {
+                onClose.run();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (release()) {
+            onClose.run();
+        }
+    }
+
+    // Flushes and unlocks the files; false when that was done already
+    private boolean release() {
+        lock.lock();
+        try {
+            if (!lockChannel.isOpen()) {
+                return false;
+            }
+            if (writeSegment != null) {
+                writeSegment.force();
+            }
+            seen.close();
+            state.force();
+            fileLock.release();
+            lockChannel.close();
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close crawl frontier " + dir, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Moves up to headCapacity records from the segments into the head buffer
+    private void refill() {
+        while (head.size() < headCapacity && readPosition < writePosition) {
+            int offset = offset(readPosition);
+            MappedByteBuffer buffer = readSegment(segment(readPosition));
+            int length = offset + RECORD_HEADER <= segmentBytes ? buffer.getInt(offset) : 0;
+            if (length == 0) {
+                // rest of the segment is unused, the writer moved on to the next one
+                readPosition = (segment(readPosition) + 1) * segmentBytes;
+                continue;
+            }
+            int depth = buffer.getInt(offset + 4);
+            byte[] bytes = new byte[length];
+            buffer.get(offset + RECORD_HEADER, bytes);
+
+            CrawlTarget target = new CrawlTarget(new String(bytes, StandardCharsets.UTF_8), depth, readPosition);
+            outstanding.put(readPosition, readSequence);
+            head.add(target);
+            readPosition += RECORD_HEADER + length;
+            readSequence++;
+        }
+    }
+
+    // Records are contiguous from the start of a segment: the end of the last one is the first unwritten length
+    private long recoverWritePosition() throws IOException {
+        long last = -1;
+        try (Stream<Path> files = Files.list(dir)) {
+            last = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("segment-") && name.endsWith(".dat"))
+                    .mapToLong(name -> Long.parseLong(name.substring(8, name.length() - 4)))
+                    .max()
+                    .orElse(-1);
+        }
+        if (last < 0 || last < segment(committedPosition)) {
+            return committedPosition;
+        }
+        MappedByteBuffer buffer = writeSegment(last);
+        int offset = last == segment(committedPosition) ? offset(committedPosition) : 0;
+        while (offset + RECORD_HEADER <= segmentBytes && buffer.getInt(offset) != 0) {
+            offset += RECORD_HEADER + buffer.getInt(offset);
+        }
+        return last * segmentBytes + offset;
+    }
+
+    private MappedByteBuffer writeSegment(long index) {
+        if (index != writeSegmentIndex) {
+            if (writeSegment != null) {
+                writeSegment.force();
+            }
+            writeSegment = mapSegment(index);
+            writeSegmentIndex = index;
+        }
+        return writeSegment;
+    }
+
+    private MappedByteBuffer readSegment(long index) {
+        if (index == writeSegmentIndex) {
+            return writeSegment;
+        }
+        if (index != readSegmentIndex) {
+            readSegment = mapSegment(index);
+            readSegmentIndex = index;
+        }
+        return readSegment;
+    }
+
+    private MappedByteBuffer mapSegment(long index) {
+        try {
+            return map(segmentFile(index), segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map crawl frontier segment " + index, e);
+        }
+    }
+
+    private void deleteSegment(long index) {
+        if (index == readSegmentIndex) {
+            readSegment = null;
+            readSegmentIndex = -1;
+        }
+        // an unmapped-but-referenced segment is fine to unlink; its pages are released with the mapping
+        segmentFile(index).toFile().delete();
+    }
+
+    private Path segmentFile(long index) {
+        return dir.resolve("segment-" + index + ".dat");
+    }
+
+    private long segment(long position) {
+        return position / segmentBytes;
+    }
+
+    private int offset(long position) {
+        return (int) (position % segmentBytes);
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+}
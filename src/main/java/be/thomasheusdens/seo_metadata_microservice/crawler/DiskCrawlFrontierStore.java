@@ -0,0 +1,183 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps every crawl frontier in {@code <dir>/<crawlId>/} (see {@link DiskCrawlFrontier}) next to the crawl's plan, so
+ * a crawl that was cancelled or cut short by a restart can be resumed. Completed crawls delete their directory;
+ * directories of crawls that are never resumed are deleted after {@code retentionHours}.
+ * <p>
+ * Crawls open in this process are tracked in memory. The lock file only keeps other processes out: file locks belong
+ * to the process, and opening then closing a second channel on the lock file of a running crawl would release its lock.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.app.crawl.frontier.store", havingValue = "disk")
+public class DiskCrawlFrontierStore implements CrawlFrontierStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskCrawlFrontierStore.class);
+
+    // crawl ids are generated UUIDs; anything else must never become a path
+    private static final Pattern CRAWL_ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    private final Path root;
+    private final long segmentBytes;
+    private final int headBuffer;
+    private final Duration retention;
+    private final Set<String> openCrawls = ConcurrentHashMap.newKeySet();
+
+    public DiskCrawlFrontierStore(@Value("${spring.app.crawl.frontier.dir:${java.io.tmpdir}/seo-crawls}") String dir,
+                                  @Value("${spring.app.crawl.frontier.segmentBytes:67108864}") long segmentBytes,
+                                  @Value("${spring.app.crawl.frontier.headBuffer:1024}") int headBuffer,
+                                  @Value("${spring.app.crawl.frontier.retentionHours:72}") long retentionHours) {
+        this.root = Paths.get(dir);
+        this.segmentBytes = segmentBytes;
+        this.headBuffer = headBuffer;
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    @Override
+    public CrawlFrontier create(CrawlPlan plan) {
+        Path dir = root.resolve(plan.crawlId());
+        DiskCrawlFrontier frontier = open(plan.crawlId(), plan.maxPages() * 4L);
+        try {
+            writePlan(dir.resolve("plan.properties"), plan);
+        } catch (IOException e) {
+            frontier.finish();
+            throw new UncheckedIOException("Cannot store crawl plan in " + dir, e);
+        }
+        return frontier;
+    }
+
+    @Override
+    public Optional<CrawlPlan> findResumable(String crawlId) {
+        if (crawlId == null || !CRAWL_ID.matcher(crawlId).matches()) {
+            return Optional.empty();
+        }
+        Path file = root.resolve(crawlId).resolve("plan.properties");
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(readPlan(crawlId, file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read crawl plan " + file, e);
+        }
+    }
+
+    @Override
+    public CrawlFrontier resume(CrawlPlan plan) {
+        return open(plan.crawlId(), plan.maxPages() * 4L);
+    }
+
+    boolean isOpen(String crawlId) {
+        return openCrawls.contains(crawlId);
+    }
+
+    @Scheduled(fixedDelay = 3600000)
+    public void deleteAbandoned() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(retention);
+        try (Stream<Path> dirs = Files.list(root)) {
+            dirs.filter(dir -> CRAWL_ID.matcher(dir.getFileName().toString()).matches())
+                    .filter(dir -> lastModified(dir.resolve("state")).isBefore(cutoff))
+                    .forEach(this::deleteAbandoned);
+        } catch (IOException e) {
+            logger.warn("Could not list crawl frontiers in {}: {}", root, e.toString());
+        }
+    }
+
+    private void deleteAbandoned(Path dir) {
+        String crawlId = dir.getFileName().toString();
+        if (openCrawls.contains(crawlId)) {
+            return;
+        }
+        try {
+            // opening registers the crawl and takes its file lock, so a resume started meanwhile is turned away
+            open(crawlId, 0).finish();
+            logger.info("Deleted abandoned crawl frontier {}", crawlId);
+        } catch (IllegalStateException | UncheckedIOException e) {
+            logger.debug("Skipped crawl frontier {}: {}", crawlId, e.toString());
+        }
+    }
+
+    private DiskCrawlFrontier open(String crawlId, long expectedUrls) {
+        if (!openCrawls.add(crawlId)) {
+            throw new IllegalStateException("Crawl " + crawlId + " is already running");
+        }
+        try {
+            return new DiskCrawlFrontier(root.resolve(crawlId), segmentBytes, headBuffer, expectedUrls,
+                    () -> openCrawls.remove(crawlId));
+        } catch (RuntimeException e) {
+            openCrawls.remove(crawlId);
+            throw e;
+        }
+    }
+
+    private static Instant lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant();
+        } catch (IOException e) {
+            return Instant.EPOCH;
+        }
+    }
+
+    private static void writePlan(Path file, CrawlPlan plan) throws IOException {
+        Properties props = new Properties();
+        if (plan.userId() != null) {
+            props.setProperty("userId", plan.userId().toString());
+        }
+        props.setProperty("seedUrl", plan.seedUrl());
+        props.setProperty("host", plan.host());
+        props.setProperty("maxDepth", Integer.toString(plan.maxDepth()));
+        props.setProperty("maxPages", Integer.toString(plan.maxPages()));
+        props.setProperty("parallelism", Integer.toString(plan.parallelism()));
+        props.setProperty("fields", plan.fields().stream().map(Enum::name).collect(Collectors.joining(",")));
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            props.store(writer, null);
+        }
+    }
+
+    private static CrawlPlan readPlan(String crawlId, Path file) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            props.load(reader);
+        }
+        Set<MetadataField> fields = EnumSet.noneOf(MetadataField.class);
+        for (String name : props.getProperty("fields", "").split(",")) {
+            if (!name.isEmpty()) {
+                fields.add(MetadataField.valueOf(name));
+            }
+        }
+        String userId = props.getProperty("userId");
+        return new CrawlPlan(crawlId, userId == null ? null : Long.valueOf(userId),
+                props.getProperty("seedUrl"), props.getProperty("host"),
+                Integer.parseInt(props.getProperty("maxDepth")), Integer.parseInt(props.getProperty("maxPages")),
+                Integer.parseInt(props.getProperty("parallelism")), fields, true);
+    }
+}
@@ -0,0 +1,65 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Frontier kept on the heap: a queue of pending pages and a {@link UrlSeenSet}. Lost when the crawl stops.
+ */
+final class InMemoryCrawlFrontier implements CrawlFrontier {
+
+    private final BlockingQueue<CrawlTarget> queue = new LinkedBlockingQueue<>();
+    private final UrlSeenSet seen;
+    private final AtomicLong pushed = new AtomicLong();
+    private final AtomicLong done = new AtomicLong();
+
+    InMemoryCrawlFrontier(int expectedUrls) {
+        this.seen = new UrlSeenSet(expectedUrls);
+    }
+
+    @Override
+    public boolean markSeen(String url) {
+        return seen.add(url);
+    }
+
+    @Override
+    public void push(String url, int depth) {
+        if (!CrawlFrontier.fits(url)) {
+            throw new IllegalArgumentException("URL longer than " + MAX_URL_BYTES + " bytes");
+        }
+        pushed.incrementAndGet();
+        queue.add(new CrawlTarget(url, depth, -1));
+    }
+
+    @Override
+    public CrawlTarget poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    @Override
+    public void done(CrawlTarget target) {
+        done.incrementAndGet();
+    }
+
+    @Override
+    public long pushed() {
+        return pushed.get();
+    }
+
+    @Override
+    public long size() {
+        return pushed.get() - done.get();
+    }
+
+    @Override
+    public void finish() {
+        queue.clear();
+    }
+
+    @Override
+    public void close() {
+        queue.clear();
+    }
+}
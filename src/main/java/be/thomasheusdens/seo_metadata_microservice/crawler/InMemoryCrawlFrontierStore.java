@@ -0,0 +1,26 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "spring.app.crawl.frontier.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryCrawlFrontierStore implements CrawlFrontierStore {
+
+    @Override
+    public CrawlFrontier create(CrawlPlan plan) {
+        return new InMemoryCrawlFrontier(plan.maxPages() * 4);
+    }
+
+    @Override
+    public Optional<CrawlPlan> findResumable(String crawlId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public CrawlFrontier resume(CrawlPlan plan) {
+        throw new IllegalStateException("Crawls can only be resumed with spring.app.crawl.frontier.store=disk");
+    }
+}
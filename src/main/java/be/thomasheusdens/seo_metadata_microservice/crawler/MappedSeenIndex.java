@@ -0,0 +1,139 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * On-disk twin of {@link UrlSeenSet}: the same open-addressing table of 64-bit URL hashes, stored in a memory-mapped
+ * file ({@code [count][slots][slot...]}) so it costs no heap and survives a restart. Growing rehashes into a new
+ * file that atomically replaces the old one. A mapping stays valid after its channel is closed, so none is kept open.
+ * Not thread-safe; {@link DiskCrawlFrontier} serializes access.
+ */
+final class MappedSeenIndex implements AutoCloseable {
+
+    private static final int HEADER_BYTES = 16;
+    // one mapping is limited to 2GB
+    private static final long MAX_SLOTS = Long.highestOneBit((Integer.MAX_VALUE - HEADER_BYTES) / Long.BYTES);
+
+    private final Path file;
+    private MappedByteBuffer table;
+    private long slots;
+    private long count;
+
+    MappedSeenIndex(Path file, long expected) {
+        this.file = file;
+        try {
+            if (Files.exists(file)) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    table = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                }
+                count = table.getLong(0);
+                slots = table.getLong(8);
+            } else {
+                long size = 1 << 16;
+                while (size < expected * 2 && size < MAX_SLOTS) {
+                    size <<= 1;
+                }
+                table = create(file, size);
+                slots = size;
+                replace(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open seen-URL index " + file, e);
+        }
+    }
+
+    /**
+     * Returns true when the URL was not seen before.
+     */
+    boolean add(String url) {
+        long hash = UrlSeenSet.hash(url);
+        if (!insert(table, slots, hash)) {
+            return false;
+        }
+        table.putLong(0, ++count);
+        if (count * 2 > slots) {
+            grow();
+        }
+        return true;
+    }
+
+    long size() {
+        return count;
+    }
+
+    private void grow() {
+        if (slots >= MAX_SLOTS) {
+            if (count >= slots * 7 / 8) {
+                throw new IllegalStateException("Seen-URL index is full (" + count + " URLs)");
+            }
+            return;
+        }
+        try {
+            long bigger = slots * 2;
+            MappedByteBuffer next = create(file, bigger);
+            for (long i = 0; i < slots; i++) {
+                long hash = table.getLong(offset(i));
+                if (hash != 0) {
+                    insert(next, bigger, hash);
+                }
+            }
+            next.putLong(0, count);
+            next.force();
+            replace(file);
+            // the old mapping is released once it is garbage collected
+            table = next;
+            slots = bigger;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow seen-URL index " + file, e);
+        }
+    }
+
+    // Linear probing; 0 marks an empty slot
+    private static boolean insert(MappedByteBuffer table, long slots, long hash) {
+        long mask = slots - 1;
+        long i = hash & mask;
+        while (true) {
+            long current = table.getLong(offset(i));
+            if (current == 0) {
+                table.putLong(offset(i), hash);
+                return true;
+            }
+            if (current == hash) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private static int offset(long slot) {
+        return (int) (HEADER_BYTES + slot * Long.BYTES);
+    }
+
+    // Writes an empty table of the given size next to the index; the caller moves it into place
+    private static MappedByteBuffer create(Path file, long slots) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + slots * Long.BYTES);
+            buffer.putLong(8, slots);
+            return buffer;
+        }
+    }
+
+    private static void replace(Path file) throws IOException {
+        Files.move(file.resolveSibling(file.getFileName() + ".tmp"), file,
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void close() {
+        table.force();
+    }
+}
@@ -0,0 +1,343 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.CrawledPage;
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataField;
+import be.thomasheusdens.seo_metadata_microservice.scraper.ScraperService;
+import be.thomasheusdens.seo_metadata_microservice.scraper.UrlNormalizer;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisResult;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisService;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoCheck;
+import be.thomasheusdens.seo_metadata_microservice.seo.history.AnalysisResultWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Crawls a site breadth-first from a seed URL, following links to the seed's host only: the host the seed redirects
+ * to, if it does (e.g. {@code example.com} to {@code www.example.com}). Every page is fetched and
+ * parsed once ({@link ScraperService#crawl}), analysed with {@link SeoAnalysisService} and handed to the listener
+ * right away; the totals are returned as a {@link CrawlSummary} when the frontier runs dry or the budget is spent.
+ * <p>
+ * Pages are fetched by {@code parallelism} virtual-thread workers sharing one {@link CrawlFrontier}, created by the
+ * configured {@link CrawlFrontierStore}. Every fetch still goes
+ * through the {@code HostScheduler}, so its per-host limits also bound the crawl rate of a single site.
+ */
+@Service
+public class SiteCrawler {
+
+    private static final Logger logger = LoggerFactory.getLogger(SiteCrawler.class);
+
+    // Links to files that can't be analysed are skipped without a fetch
+    private static final Pattern SKIPPED_EXTENSIONS = Pattern.compile(
+            ".*\\.(?:jpe?g|png|gif|webp|svg|ico|bmp|tiff?|pdf|zip|gz|tgz|rar|7z|exe|dmg|msi|apk|mp[34]|m4a|wav|avi"
+                    + "|mov|webm|woff2?|ttf|eot|css|js|json|docx?|xlsx?|pptx?|csv)$");
+
+    private final ScraperService scraperService;
+    private final SeoAnalysisService analysisService;
+    private final AnalysisResultWriter historyWriter;
+    private final CrawlFrontierStore frontierStore;
+
+    private final int defaultMaxPages;
+    private final int defaultMaxDepth;
+    private final int defaultParallelism;
+    private final int maxParallelism;
+    private final int pageLimit;
+
+    public SiteCrawler(ScraperService scraperService, SeoAnalysisService analysisService,
+                       AnalysisResultWriter historyWriter, CrawlFrontierStore frontierStore,
+                       @Value("${spring.app.crawl.maxPages:1000}") int defaultMaxPages,
+                       @Value("${spring.app.crawl.maxDepth:5}") int defaultMaxDepth,
+                       @Value("${spring.app.crawl.parallelism:8}") int defaultParallelism,
+                       @Value("${spring.app.crawl.maxParallelism:32}") int maxParallelism,
+                       @Value("${spring.app.crawl.pageLimit:10000}") int pageLimit) {
+        this.scraperService = scraperService;
+        this.analysisService = analysisService;
+        this.historyWriter = historyWriter;
+        this.frontierStore = frontierStore;
+        this.defaultMaxPages = defaultMaxPages;
+        this.defaultMaxDepth = defaultMaxDepth;
+        this.defaultParallelism = defaultParallelism;
+        this.maxParallelism = maxParallelism;
+        this.pageLimit = pageLimit;
+    }
+
+    /**
+     * Validates the request and resolves its defaults, so a bad request fails before a response is streamed.
+     * With {@code resumeId}, returns the stored plan of that crawl when it belongs to {@code userId}.
+     */
+    public CrawlPlan plan(CrawlRequest request, Long userId) {
+        if (request.getResumeId() != null) {
+            return frontierStore.findResumable(request.getResumeId())
+                    .filter(plan -> Objects.equals(plan.userId(), userId))
+                    .orElseThrow(() -> new IllegalArgumentException("No resumable crawl " + request.getResumeId()));
+        }
+
+        String seed = request.getSeedUrl();
+        if (seed == null || seed.isBlank()) {
+            throw new IllegalArgumentException("Valid seed URL is required");
+        }
+        if (!seed.startsWith("http://") && !seed.startsWith("https://")) {
+            throw new IllegalArgumentException("URL must start with http:// or https://");
+        }
+        seed = UrlNormalizer.normalize(seed);
+        if (!CrawlFrontier.fits(seed)) {
+            throw new IllegalArgumentException("Seed URL is longer than " + CrawlFrontier.MAX_URL_BYTES + " bytes");
+        }
+        String host = hostOf(seed);
+        if (host == null) {
+            throw new IllegalArgumentException("Seed URL has no host");
+        }
+
+        int maxPages = request.getMaxPages() == null ? defaultMaxPages : request.getMaxPages();
+        if (maxPages < 1 || maxPages > pageLimit) {
+            throw new IllegalArgumentException("maxPages must be between 1 and " + pageLimit);
+        }
+        int maxDepth = request.getMaxDepth() == null ? defaultMaxDepth : Math.max(0, request.getMaxDepth());
+        int parallelism = request.getParallelism() == null
+                ? defaultParallelism
+                : Math.max(1, Math.min(request.getParallelism(), maxParallelism));
+
+        return new CrawlPlan(UUID.randomUUID().toString(), userId, seed, host, maxDepth, maxPages, parallelism,
+                MetadataField.parse(request.getFields(), request.getMode()), false);
+    }
+
+    public CrawlSummary crawl(CrawlPlan plan, CrawlListener listener) {
+        CrawlFrontier frontier = plan.resumed() ? frontierStore.resume(plan) : frontierStore.create(plan);
+        Crawl crawl = new Crawl(plan, frontier, listener);
+        boolean completed = false;
+        try {
+            crawl.run();
+            completed = !crawl.cancelled.get();
+        } finally {
+            if (completed) {
+                frontier.finish();
+            } else {
+                frontier.close();
+            }
+        }
+        return crawl.summary();
+    }
+
+    /**
+     * State of one running crawl. {@code pending} counts queued plus in-flight pages: the crawl is done when it
+     * drops to zero, since only an in-flight page can still add links. A resumed crawl starts from what its frontier
+     * still holds; its summary covers the pages crawled since resuming.
+     */
+    private class Crawl {
+
+        private final CrawlPlan plan;
+        private final CrawlFrontier frontier;
+        private final CrawlListener listener;
+
+        private final AtomicLong scheduled = new AtomicLong();
+        private final AtomicLong pending = new AtomicLong();
+        private final AtomicBoolean budgetExhausted = new AtomicBoolean();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private final LongAdder crawled = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final AtomicInteger maxDepthReached = new AtomicInteger();
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder warning = new LongAdder();
+        private final LongAdder critical = new LongAdder();
+        private final Map<String, LongAdder> issuesByCheck = new ConcurrentHashMap<>();
+
+        // Host links must point to; set before the first link is offered
+        private volatile String host;
+
+        private long startNanos;
+        private long durationMs;
+
+        Crawl(CrawlPlan plan, CrawlFrontier frontier, CrawlListener listener) {
+            this.plan = plan;
+            this.frontier = frontier;
+            this.listener = listener;
+            this.host = plan.host();
+        }
+
+        void run() {
+            startNanos = System.nanoTime();
+            if (plan.resumed()) {
+                scheduled.set(frontier.pushed());
+                pending.set(frontier.size());
+            } else {
+                frontier.markSeen(plan.seedUrl());
+                scheduled.incrementAndGet();
+                pending.incrementAndGet();
+                frontier.push(plan.seedUrl(), 0);
+            }
+
+            // close() waits until every worker has finished
+            try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < plan.parallelism(); i++) {
+                    workers.submit(this::work);
+                }
+            }
+
+            durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            logger.info("Crawl {}: {} pages of {} in {} ms ({} failed, budget exhausted: {}, cancelled: {})",
+                    plan.crawlId(), crawled.sum(), plan.host(), durationMs, failed.sum(), budgetExhausted.get(), cancelled.get());
+        }
+
+        private void work() {
+            try {
+                while (!cancelled.get() && pending.get() > 0) {
+                    CrawlTarget target = frontier.poll(50, TimeUnit.MILLISECONDS);
+                    if (target == null) {
+                        continue;
+                    }
+                    try {
+                        visit(target);
+                    } finally {
+                        pending.decrementAndGet();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled.set(true);
+            } catch (RuntimeException e) {
+                // the frontier failed (e.g. disk full): stop, what is stored so far can still be resumed
+                logger.error("Crawl {} of {} stopped: {}", plan.crawlId(), plan.host(), e.toString());
+                cancelled.set(true);
+            }
+        }
+
+        private void visit(CrawlTarget target) {
+            CrawlPageResult result;
+            try {
+                CrawledPage page = scraperService.crawl(target.url(), plan.fields());
+                if (target.depth() == 0) {
+                    // the crawl stays on the host the seed landed on, and links back to that page aren't crawled again
+                    String landed = UrlNormalizer.normalize(page.url());
+                    if (hostOf(landed) != null) {
+                        host = hostOf(landed);
+                        frontier.markSeen(landed);
+                    }
+                } else if (plan.resumed()) {
+                    // the frontier only holds links that were followed, so their host is the crawl's
+                    host = hostOf(target.url());
+                }
+                SeoAnalysisResult analysis = analysisService.analyze(page.metadata(), plan.fields());
+                record(analysis);
+                if (plan.userId() != null) {
+                    historyWriter.submit(plan.userId(), target.url(), plan.fields(), page.metadata(), analysis);
+                }
+                if (target.depth() < plan.maxDepth()) {
+                    for (String link : page.links()) {
+                        offer(link, target.depth() + 1);
+                    }
+                }
+                result = new CrawlPageResult(target.url(), target.depth(), analysis, null);
+            } catch (Exception e) {
+                failed.increment();
+                result = new CrawlPageResult(target.url(), target.depth(), null,
+                        e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            }
+            crawled.increment();
+            maxDepthReached.accumulateAndGet(target.depth(), Math::max);
+
+            try {
+                listener.onPage(result);
+            } catch (Exception e) {
+                // not done: a resumed crawl delivers this page again
+                logger.debug("Crawl of {} cancelled by its listener: {}", plan.host(), e.toString());
+                cancelled.set(true);
+                return;
+            }
+            frontier.done(target);
+        }
+
+        private void offer(String link, int depth) {
+            String url = UrlNormalizer.normalize(stripFragment(link));
+            if (!follows(url) || !frontier.markSeen(url)) {
+                return;
+            }
+            if (scheduled.getAndUpdate(n -> n < plan.maxPages() ? n + 1 : n) >= plan.maxPages()) {
+                budgetExhausted.set(true);
+                return;
+            }
+            pending.incrementAndGet();
+            try {
+                frontier.push(url, depth);
+            } catch (RuntimeException e) {
+                pending.decrementAndGet();
+                throw e;
+            }
+        }
+
+        private boolean follows(String url) {
+            if (!url.startsWith("http://") && !url.startsWith("https://")) {
+                return false;
+            }
+            // a page that is only reachable through an over-long (faceted) link isn't crawled
+            if (!CrawlFrontier.fits(url)) {
+                return false;
+            }
+            if (!host.equals(hostOf(url))) {
+                return false;
+            }
+            int query = url.indexOf('?');
+            String path = (query < 0 ? url : url.substring(0, query)).toLowerCase(Locale.ROOT);
+            return !SKIPPED_EXTENSIONS.matcher(path).matches();
+        }
+
+        private void record(SeoAnalysisResult analysis) {
+            for (SeoCheck check : analysis.getChecks()) {
+                switch (check.getStatus()) {
+                    case "OK" -> ok.increment();
+                    case "WARNING" -> warning.increment();
+                    default -> critical.increment();
+                }
+                if (!"OK".equals(check.getStatus())) {
+                    issuesByCheck.computeIfAbsent(check.getLabel(), label -> new LongAdder()).increment();
+                }
+            }
+        }
+
+        CrawlSummary summary() {
+            Map<String, Long> issues = new TreeMap<>();
+            issuesByCheck.forEach((label, count) -> issues.put(label, count.sum()));
+            int pages = crawled.intValue();
+            double perMinute = durationMs == 0 ? 0 : pages * 60_000.0 / durationMs;
+            return new CrawlSummary(plan.crawlId(), plan.seedUrl(), pages, failed.intValue(), maxDepthReached.get(),
+                    ok.sum(), warning.sum(), critical.sum(), issues, budgetExhausted.get(), cancelled.get(),
+                    durationMs, Math.round(perMinute * 10) / 10.0);
+        }
+    }
+
+    private static String stripFragment(String url) {
+        int hash = url.indexOf('#');
+        return hash < 0 ? url : url.substring(0, hash);
+    }
+
+    // Host plus explicit port; URLs are normalized first, so default ports are already gone
+    private static String hostOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getHost() == null) {
+                return null;
+            }
+            String host = uri.getHost().toLowerCase(Locale.ROOT);
+            return uri.getPort() == -1 ? host : host + ":" + uri.getPort();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Set of visited URLs kept as 64-bit hashes in an open-addressing {@code long[]}: 8 bytes per URL, no per-entry
+ * objects. Two URLs with the same 64-bit hash count as one; at crawl sizes that is vanishingly unlikely.
+ * Thread-safe; workers add a handful of links per page, so a monitor is cheap enough.
+ */
+final class UrlSeenSet {
+
+    private long[] table;
+    private int size;
+
+    UrlSeenSet(int expected) {
+        table = new long[tableSize(expected)];
+    }
+
+    /**
+     * Returns true when the URL was not seen before.
+     */
+    synchronized boolean add(String url) {
+        long hash = hash(url);
+        if (!insert(table, hash)) {
+            return false;
+        }
+        if (++size * 2 > table.length) {
+            grow();
+        }
+        return true;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] bigger = new long[table.length * 2];
+        for (long hash : table) {
+            if (hash != 0) {
+                insert(bigger, hash);
+            }
+        }
+        table = bigger;
+    }
+
+    // Linear probing; 0 marks an empty slot
+    private static boolean insert(long[] table, long hash) {
+        int mask = table.length - 1;
+        int i = (int) hash & mask;
+        while (table[i] != 0) {
+            if (table[i] == hash) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = hash;
+        return true;
+    }
+
+    // FNV-1a over the UTF-8 bytes, then the MurmurHash3 finalizer to spread the low bits used for the slot
+    static long hash(String url) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : url.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private static int tableSize(int expected) {
+        int size = 16;
+        while (size < expected * 2L) {
+            size <<= 1;
+        }
+        return size;
+    }
+}
@@ -1,6 +1,7 @@
 package be.thomasheusdens.seo_metadata_microservice.jwt;
 
 import java.io.IOException;
+import java.util.List;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,8 +9,10 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -21,9 +24,20 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
     @Autowired
     private UserDetailsService userDetailsService;
 
+    // Stateless: build the principal from the verified token claims instead of loading the user per request.
+    // Role changes then apply from the next issued access token.
+    @Value("${spring.app.statelessJwt:true}")
+    private boolean statelessJwt;
+
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
     @Override
@@ -31,9 +45,20 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         logger.debug("AuthTokenFilter called for URI: {}", request.getRequestURI());
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)){
-                String username = jwtUtils.getUsernameFromJwtToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            JwtClaims claims = jwt != null ? verifiedTokenCache.verify(jwt) : null;
+            // only access tokens authenticate a request, whatever else is signed with the same key
+            if (claims != null && !"access".equals(claims.getType())) {
+                logger.debug("Rejected a token of type {} for {}", claims.getType(), claims.getUsername());
+                claims = null;
+            }
+            if (claims != null && tokenRevocationList.isRevoked(claims)) {
+                logger.debug("Access token of {} was revoked", claims.getUsername());
+                claims = null;
+            }
+            if (claims != null){
+                UserDetails userDetails = statelessJwt
+                        ? userFromClaims(claims)
+                        : userDetailsService.loadUserByUsername(claims.getUsername());
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 logger.debug("Roles from JWT: {}", userDetails.getAuthorities());
@@ -47,6 +72,14 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails userFromClaims(JwtClaims claims) {
+        List<String> roles = claims.getRoles();
+        return User.withUsername(claims.getUsername())
+                .password("")
+                .authorities(roles == null ? new String[0] : roles.toArray(String[]::new))
+                .build();
+    }
+
     private String parseJwt(HttpServletRequest request){
         String jwt = jwtUtils.getJwtFromHeader(request);
         logger.debug("AuthTokenFilter.java: {}", jwt);
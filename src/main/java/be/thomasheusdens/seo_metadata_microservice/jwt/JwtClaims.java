@@ -0,0 +1,21 @@
+package be.thomasheusdens.seo_metadata_microservice.jwt;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Claims of a verified access token.
+ */
+@Getter
+@AllArgsConstructor
+public class JwtClaims {
+
+    private final String username;
+    private final List<String> roles;
+    private final String type;
+    private final Date issuedAt;
+    private final Date expiration;
+}
@@ -2,7 +2,9 @@ package be.thomasheusdens.seo_metadata_microservice.jwt;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +29,18 @@ public class JwtUtils {
     @Value("${spring.app.accessTokenExpirationMs}")
     private long accessTokenExpirationMs;
 
+    // Built once: the key and parser are immutable and thread-safe
+    @Getter(AccessLevel.NONE)
+    private SecretKey key;
+    @Getter(AccessLevel.NONE)
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parser().verifyWith(key).build();
+    }
+
     public String getJwtFromHeader(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         logger.debug("Authorization Header: {}", bearerToken);
@@ -47,7 +61,7 @@ public class JwtUtils {
                 .claim("type", "access")
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + accessTokenExpirationMs))
-                .signWith(key())
+                .signWith(key)
                 .compact();
     }
 
@@ -56,33 +70,15 @@ public class JwtUtils {
         return generateAccessToken(userDetails);
     }
 
-    public String getUsernameFromJwtToken(String token) {
-        return Jwts.parser()
-                .verifyWith(key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
-    }
-
+    /**
+     * Parses and verifies the token once. Returns its claims, or null when the token is invalid or expired.
+     */
     @SuppressWarnings("unchecked")
-    public List<String> getRolesFromJwtToken(String token) {
-        return Jwts.parser()
-                .verifyWith(key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .get("roles", List.class);
-    }
-
-    private SecretKey key() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
-    }
-
-    public boolean validateJwtToken(String authToken) {
+    public JwtClaims verify(String token) {
         try {
-            Jwts.parser().verifyWith(key()).build().parseSignedClaims(authToken);
-            return true;
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            return new JwtClaims(claims.getSubject(), claims.get("roles", List.class), claims.get("type", String.class),
+                    claims.getIssuedAt(), claims.getExpiration());
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -91,7 +87,22 @@ public class JwtUtils {
             logger.error("JWT token is unsupported: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
+        } catch (JwtException e) {
+            logger.error("JWT signature is invalid: {}", e.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    public String getUsernameFromJwtToken(String token) {
+        return parser.parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<String> getRolesFromJwtToken(String token) {
+        return parser.parseSignedClaims(token).getPayload().get("roles", List.class);
+    }
+
+    public boolean validateJwtToken(String authToken) {
+        return verify(authToken) != null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package be.thomasheusdens.seo_metadata_microservice.jwt;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory access token denylist for logout-all. Keeps a per-user "tokens issued at or before" instant; a Bloom
+ * filter over the revoked usernames answers the common "never revoked" case without touching the map.
+ * <p>
+ * JWT {@code iat} has second precision, so a token issued in the same second as the revocation is rejected too.
+ * Entries older than the access token lifetime can no longer match a valid token and are purged.
+ * State is per instance: revocations are not shared between nodes.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final long accessTokenExpirationMs;
+    private final int expectedRevocations;
+    private final ConcurrentHashMap<String, Long> revokedBefore = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile BloomFilter filter;
+
+    public TokenRevocationList(@Value("${spring.app.accessTokenExpirationMs}") long accessTokenExpirationMs,
+                               @Value("${spring.app.expectedRevocations:10000}") int expectedRevocations) {
+        this.accessTokenExpirationMs = accessTokenExpirationMs;
+        this.expectedRevocations = expectedRevocations;
+        this.filter = new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Revokes every access token of the user issued up to now.
+     */
+    public void revokeAll(String username) {
+        writeLock.lock();
+        try {
+            revokedBefore.put(username, System.currentTimeMillis());
+            filter.add(username);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean isRevoked(JwtClaims claims) {
+        if (!filter.mightContain(claims.getUsername())) {
+            return false;
+        }
+        Long before = revokedBefore.get(claims.getUsername());
+        return before != null && (claims.getIssuedAt() == null || claims.getIssuedAt().getTime() <= before);
+    }
+
+    // Rebuilds the filter without the purged users, Bloom filters can't remove entries
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        long cutoff = System.currentTimeMillis() - accessTokenExpirationMs - 1000;
+        writeLock.lock();
+        try {
+            if (!revokedBefore.values().removeIf(revokedAt -> revokedAt < cutoff)) {
+                return;
+            }
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revokedBefore.size()), FALSE_POSITIVE_RATE);
+            revokedBefore.keySet().forEach(rebuilt::add);
+            filter = rebuilt;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    int size() {
+        return revokedBefore.size();
+    }
+}
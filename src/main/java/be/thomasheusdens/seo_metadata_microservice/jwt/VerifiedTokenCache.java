@@ -0,0 +1,75 @@
+package be.thomasheusdens.seo_metadata_microservice.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+
+/**
+ * Bounded cache of already verified access tokens, so repeated calls with the same token skip the HMAC check and
+ * claims decoding. Keyed by the SHA-256 digest of the full token (signature included, raw tokens are never stored);
+ * entries expire at the token's {@code exp}. Only valid tokens are cached.
+ * Hit rate is published as {@code cache.*} metrics tagged {@code cache=jwt.verified}.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final JwtUtils jwtUtils;
+    private final Cache<ByteBuffer, JwtClaims> cache;
+
+    public VerifiedTokenCache(JwtUtils jwtUtils,
+                              @Value("${spring.app.verifiedTokenCacheSize:10000}") long maxSize,
+                              MeterRegistry registry) {
+        this.jwtUtils = jwtUtils;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.creating((ByteBuffer key, JwtClaims claims) -> untilExpiry(claims)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "jwt.verified");
+    }
+
+    /**
+     * Same contract as {@link JwtUtils#verify(String)}: the token's claims, or null when it is invalid or expired.
+     */
+    public JwtClaims verify(String token) {
+        ByteBuffer key = digest(token);
+        JwtClaims claims = cache.getIfPresent(key);
+        if (claims != null) {
+            return claims;
+        }
+
+        claims = jwtUtils.verify(token);
+        if (claims != null && claims.getExpiration() != null) {
+            cache.put(key, claims);
+        }
+        return claims;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static Duration untilExpiry(JwtClaims claims) {
+        long millis = claims.getExpiration().getTime() - System.currentTimeMillis();
+        return Duration.ofMillis(Math.max(millis, 0));
+    }
+
+    private static ByteBuffer digest(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package be.thomasheusdens.seo_metadata_microservice.scheduling;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * Lease row for a scheduled job; the node holding an unexpired lease runs the job.
+ */
+@Getter
+@Entity
+@Table(name = "job_locks")
+public class JobLock implements Persistable<String> {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(name = "locked_until", nullable = false)
+    private Instant lockedUntil;
+
+    @Column(name = "locked_by")
+    private String lockedBy;
+
+    // The id is assigned, so without this save() would merge over a row another node created concurrently,
+    // resetting its lease; a new lock is always inserted and a duplicate fails instead
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private boolean created;
+
+    public JobLock() {}
+
+    public JobLock(String name) {
+        this.name = name;
+        this.lockedUntil = Instant.EPOCH;
+        this.created = true;
+    }
+
+    @Override
+    public String getId() {
+        return name;
+    }
+
+    @Override
+    public boolean isNew() {
+        return created;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markStored() {
+        created = false;
+    }
+}
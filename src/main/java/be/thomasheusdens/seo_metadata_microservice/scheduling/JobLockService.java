@@ -0,0 +1,77 @@
+package be.thomasheusdens.seo_metadata_microservice.scheduling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Runs a scheduled job on one node of the cluster at a time, using a lease row in {@code job_locks}.
+ * The lease expires after {@code maxDuration}, so a node that dies mid-job doesn't block the job forever.
+ */
+@Service
+public class JobLockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobLockService.class);
+
+    private final JobLockRepository jobLockRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String owner;
+
+    public JobLockService(JobLockRepository jobLockRepository, PlatformTransactionManager transactionManager) {
+        this.jobLockRepository = jobLockRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.owner = hostName() + "/" + UUID.randomUUID();
+    }
+
+    /**
+     * Runs the job if no other node holds the lease. Returns false when the job was skipped.
+     */
+    public boolean runExclusively(String name, Duration maxDuration, Runnable job) {
+        createIfMissing(name);
+
+        Instant now = Instant.now();
+        Integer acquired = transactionTemplate.execute(status ->
+                jobLockRepository.acquire(name, owner, now, now.plus(maxDuration)));
+        if (acquired == null || acquired == 0) {
+            logger.info("Skipping job {}: lease held by another node", name);
+            return false;
+        }
+
+        try {
+            job.run();
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> jobLockRepository.release(name, owner, Instant.now()));
+        }
+        return true;
+    }
+
+    private void createIfMissing(String name) {
+        if (jobLockRepository.existsById(name)) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jobLockRepository.saveAndFlush(new JobLock(name)));
+        } catch (DataIntegrityViolationException e) {
+            // created concurrently by another node
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
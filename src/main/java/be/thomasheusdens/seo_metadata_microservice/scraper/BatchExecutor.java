@@ -0,0 +1,146 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Runs one task per URL of a batch request with bounded parallelism and returns the outcomes in input order.
+ * A failing URL is reported in its own {@link BatchItem} and never fails the whole batch.
+ */
+@Component
+public class BatchExecutor {
+
+    @FunctionalInterface
+    public interface UrlTask<T> {
+        T apply(String url) throws Exception;
+    }
+
+    /**
+     * Produces the URLs of a streamed batch, passing each one to {@code sink} as soon as it is read.
+     */
+    @FunctionalInterface
+    public interface UrlSource {
+        void read(Consumer<String> sink) throws Exception;
+    }
+
+    /**
+     * Receives the outcome of each URL of a streamed batch, possibly concurrently. Throwing stops the batch.
+     */
+    @FunctionalInterface
+    public interface ItemListener<T> {
+        void onItem(BatchItem<T> item) throws Exception;
+    }
+
+    @Value("${spring.app.batch.maxUrls:500}")
+    private int maxUrls;
+
+    @Value("${spring.app.batch.parallelism:8}")
+    private int defaultParallelism;
+
+    @Value("${spring.app.batch.maxParallelism:32}")
+    private int maxParallelism;
+
+    public <T> List<BatchItem<T>> run(List<String> urls, Integer parallelism, UrlTask<T> task) {
+        if (urls == null || urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one URL is required");
+        }
+        if (urls.size() > maxUrls) {
+            throw new IllegalArgumentException("A batch accepts at most " + maxUrls + " URLs");
+        }
+
+        int permits = parallelism == null ? defaultParallelism : Math.max(1, Math.min(parallelism, maxParallelism));
+        Semaphore semaphore = new Semaphore(permits);
+
+        List<Future<BatchItem<T>>> futures = new ArrayList<>(urls.size());
+        // close() waits until every task has finished
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String url : urls) {
+                futures.add(executor.submit(() -> runOne(url, task, semaphore)));
+            }
+        }
+
+        List<BatchItem<T>> results = new ArrayList<>(futures.size());
+        for (Future<BatchItem<T>> future : futures) {
+            results.add(future.resultNow());
+        }
+        return results;
+    }
+
+    /**
+     * Batch over a source too large to hold as a list. URLs start as they are read; while {@code parallelism} are in
+     * progress the source blocks in its sink, so reading never runs ahead of the work. Outcomes go to the listener in
+     * completion order. Returns once every URL that was read has completed; returns false when the listener or an
+     * interrupt stopped the batch early.
+     */
+    public <T> boolean runStreaming(Integer parallelism, UrlSource source, UrlTask<T> task,
+                                    ItemListener<T> listener) throws Exception {
+        int permits = parallelism == null ? defaultParallelism : Math.max(1, Math.min(parallelism, maxParallelism));
+        Semaphore semaphore = new Semaphore(permits);
+        AtomicBoolean stopped = new AtomicBoolean();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            source.read(url -> {
+                if (stopped.get()) {
+                    throw new CancellationException("Batch was stopped");
+                }
+                try {
+                    semaphore.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stopped.set(true);
+                    throw new CancellationException("Batch was interrupted");
+                }
+                executor.submit(() -> {
+                    BatchItem<T> item;
+                    try {
+                        item = BatchItem.success(url, task.apply(url));
+                    } catch (Throwable e) {
+                        item = BatchItem.failure(url, message(e));
+                    } finally {
+                        semaphore.release();
+                    }
+                    try {
+                        listener.onItem(item);
+                    } catch (Throwable e) {
+                        stopped.set(true);
+                    }
+                });
+            });
+        } catch (CancellationException e) {
+            // the source was stopped from its sink, the URLs already started have completed
+        }
+        return !stopped.get();
+    }
+
+    private <T> BatchItem<T> runOne(String url, UrlTask<T> task, Semaphore semaphore) {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BatchItem.failure(url, "Batch was interrupted");
+        }
+
+        try {
+            return BatchItem.success(url, task.apply(url));
+        } catch (Throwable e) {
+            // Errors too: a task that dies would otherwise fail resultNow() and with it the whole batch
+            return BatchItem.failure(url, message(e));
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    private static String message(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,20 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class BatchItem<T> {
+    private String url;
+    private T result;
+    private String error;
+
+    public static <T> BatchItem<T> success(String url, T result) {
+        return new BatchItem<>(url, result, null);
+    }
+
+    public static <T> BatchItem<T> failure(String url, String error) {
+        return new BatchItem<>(url, null, error);
+    }
+}
@@ -0,0 +1,15 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BatchRequest {
+    private List<String> urls;
+    private String fields;
+    private ExtractionMode mode = ExtractionMode.FULL;
+    private Integer parallelism;
+}
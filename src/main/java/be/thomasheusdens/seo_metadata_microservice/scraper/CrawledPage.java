@@ -0,0 +1,10 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import java.util.List;
+
+/**
+ * Metadata of a crawled page plus the absolute URLs of its links, collected in the same parse. {@code url} is where
+ * the fetch ended up after redirects.
+ */
+public record CrawledPage(String url, ScraperMetadata metadata, List<String> links) {
+}
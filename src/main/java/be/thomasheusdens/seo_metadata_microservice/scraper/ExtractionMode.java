@@ -0,0 +1,9 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+public enum ExtractionMode {
+    // Downloads and parses the whole page
+    FULL,
+
+    // Streams the page and stops reading once </head> is parsed; body-derived fields are left null
+    HEAD
+}
@@ -0,0 +1,98 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import lombok.Getter;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A fetched, already decoded response body waiting to be parsed. Must be closed; closing before the body
+ * is fully read aborts the transfer.
+ */
+@Getter
+public class FetchedPage implements Closeable {
+
+    private static final int CHARSET_SNIFF_BYTES = 5 * 1024;
+    private static final Pattern META_CHARSET =
+            Pattern.compile("<meta[^>]+charset\\s*=\\s*[\"']?([\\w.:-]+)", Pattern.CASE_INSENSITIVE);
+
+    private final String url;
+    private final int statusCode;
+    private final String charset;
+    private final boolean xml;
+    private final String etag;
+    private final String lastModified;
+    private final InputStream body;
+
+    public FetchedPage(String url, int statusCode, String charset, boolean xml,
+                       String etag, String lastModified, InputStream body) {
+        this.url = url;
+        this.statusCode = statusCode;
+        this.charset = charset;
+        this.xml = xml;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.body = body;
+    }
+
+    public boolean isNotModified() {
+        return statusCode == 304;
+    }
+
+    public Document parse() throws IOException {
+        return Jsoup.parse(body, charset, url, parser());
+    }
+
+    /**
+     * Starts a progressive parse of the body. The charset comes from the Content-Type header, or is sniffed from a
+     * {@code <meta charset>} in the first bytes of the page, falling back to UTF-8.
+     */
+    public StreamParser streamParser() throws IOException {
+        BufferedInputStream in = new BufferedInputStream(body, CHARSET_SNIFF_BYTES);
+        Charset cs = charset != null ? charsetOrUtf8(charset) : sniffCharset(in);
+        return new StreamParser(parser()).parse(new BufferedReader(new InputStreamReader(in, cs)), url);
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+
+    private Parser parser() {
+        return xml ? Parser.xmlParser() : Parser.htmlParser();
+    }
+
+    private static Charset sniffCharset(BufferedInputStream in) throws IOException {
+        in.mark(CHARSET_SNIFF_BYTES);
+        byte[] head = in.readNBytes(CHARSET_SNIFF_BYTES);
+        in.reset();
+
+        if (head.length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+            in.skip(3);
+            return StandardCharsets.UTF_8;
+        }
+
+        Matcher matcher = META_CHARSET.matcher(new String(head, StandardCharsets.ISO_8859_1));
+        return matcher.find() ? charsetOrUtf8(matcher.group(1)) : StandardCharsets.UTF_8;
+    }
+
+    private static Charset charsetOrUtf8(String name) {
+        try {
+            return Charset.forName(name);
+        } catch (IllegalArgumentException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Politeness scheduler for outbound fetches. Every fetch takes a {@link Permit} for its host first, which limits the
+ * number of concurrent fetches per host and spaces their start times by a minimum delay.
+ * <p>
+ * Waiters queue per host (FIFO), so a burst against one origin never delays fetches to other hosts. A fetch only
+ * competes for the global limit once it holds its host permit, which gives each host at most
+ * {@code maxPerHost} places in the global FIFO queue and keeps the share fair across hosts.
+ */
+@Component
+public class HostScheduler {
+
+    private final int maxPerHost;
+    private final long minDelayNanos;
+    private final Semaphore global;
+    private final ConcurrentHashMap<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Timer waitTimer;
+
+    public HostScheduler(@Value("${spring.app.scraper.maxConcurrentPerHost:4}") int maxPerHost,
+                         @Value("${spring.app.scraper.minDelayPerHostMs:250}") long minDelayMs,
+                         @Value("${spring.app.scraper.maxConcurrentFetches:256}") int maxConcurrent,
+                         MeterRegistry registry) {
+        this.maxPerHost = maxPerHost;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMs);
+        this.global = new Semaphore(maxConcurrent, true);
+
+        this.waitTimer = Timer.builder("scraper.fetch.wait")
+                .description("Time a fetch waited for its host permit, politeness delay and global slot")
+                .register(registry);
+        Gauge.builder("scraper.fetch.queue", queued, AtomicInteger::get)
+                .description("Fetches waiting for a permit")
+                .register(registry);
+        Gauge.builder("scraper.fetch.active", active, AtomicInteger::get)
+                .description("Fetches currently holding a permit")
+                .register(registry);
+        Gauge.builder("scraper.fetch.hosts", hosts, ConcurrentHashMap::size)
+                .description("Hosts with queued, active or recently started fetches")
+                .register(registry);
+    }
+
+    public Permit acquire(String url) throws InterruptedException {
+        String host = hostOf(url);
+        long waitStart = System.nanoTime();
+
+        // users is only changed inside compute(), so eviction can never drop a host that is in use
+        HostState state = hosts.compute(host, (key, existing) -> {
+            HostState s = existing != null ? existing : new HostState(maxPerHost);
+            s.users++;
+            return s;
+        });
+
+        queued.incrementAndGet();
+        boolean hostAcquired = false;
+        try {
+            state.permits.acquire();
+            hostAcquired = true;
+
+            long now = System.nanoTime();
+            long slot = state.nextStart.getAndAccumulate(now, (prev, n) -> Math.max(prev, n) + minDelayNanos);
+            long start = Math.max(slot, now);
+            if (start > now) {
+                TimeUnit.NANOSECONDS.sleep(start - now);
+            }
+
+            global.acquire();
+        } catch (InterruptedException e) {
+            if (hostAcquired) {
+                state.permits.release();
+            }
+            leave(host);
+            throw e;
+        } finally {
+            queued.decrementAndGet();
+        }
+
+        waitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+        active.incrementAndGet();
+        return new Permit(host, state);
+    }
+
+    public int queueDepth() {
+        return queued.get();
+    }
+
+    public int activeFetches() {
+        return active.get();
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleHosts() {
+        long now = System.nanoTime();
+        for (String host : hosts.keySet()) {
+            hosts.computeIfPresent(host, (key, s) -> s.users == 0 && s.nextStart.get() - now <= 0 ? null : s);
+        }
+    }
+
+    private void leave(String host) {
+        hosts.computeIfPresent(host, (key, s) -> {
+            s.users--;
+            return s;
+        });
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? "" : host.toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    private static class HostState {
+        private final Semaphore permits;
+        private final AtomicLong nextStart = new AtomicLong(System.nanoTime());
+        private int users;
+
+        HostState(int maxPerHost) {
+            this.permits = new Semaphore(maxPerHost, true);
+        }
+    }
+
+    public class Permit implements AutoCloseable {
+        private final String host;
+        private final HostState state;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(String host, HostState state) {
+            this.host = host;
+            this.state = state;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                active.decrementAndGet();
+                global.release();
+                state.permits.release();
+                leave(host);
+            }
+        }
+    }
+}
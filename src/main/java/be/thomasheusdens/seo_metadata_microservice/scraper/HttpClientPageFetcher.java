@@ -0,0 +1,294 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import jakarta.annotation.PreDestroy;
+import org.jsoup.HttpStatusException;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Default {@link PageFetcher}, backed by one shared {@link HttpClient}. The client keeps connections alive and pools
+ * them per origin, negotiates HTTP/2 (multiplexing requests to the same host over one connection) and reuses TLS
+ * sessions, so repeated scans of a host skip the TCP and TLS handshakes.
+ * <p>
+ * With {@code spring.threads.virtual.enabled} the client also runs its internal work on virtual threads, so a
+ * request thread blocked in {@link #fetch(String, String, String)} waiting on a slow origin does not hold a platform thread.
+ * <p>
+ * The request timeout only covers the response headers. A watchdog closes the body of a page still being read when
+ * {@code totalTimeoutMs} has passed since the request was sent, so an origin trickling bytes can't hold a fetch
+ * (and its per-host permit) forever. Resources get the deadline their caller passes.
+ */
+@Component
+public class HttpClientPageFetcher implements PageFetcher {
+
+    private static final Pattern CHARSET = Pattern.compile("(?i)\\bcharset=\\s*[\"']?([^\\s,;\"']*)");
+    private static final Pattern XML_CONTENT_TYPE = Pattern.compile("(\\w+)/\\w*\\+?xml.*");
+
+    private final HttpClient client;
+    private final Duration timeout;
+    private final long totalTimeoutNanos;
+    private final long maxBodyBytes;
+    private final ScheduledThreadPoolExecutor watchdog;
+    // null when the client runs on its default pool
+    private final ExecutorService executor;
+
+    public HttpClientPageFetcher(@Value("${spring.app.scraper.timeoutMs:10000}") long timeoutMs,
+                                 @Value("${spring.app.scraper.totalTimeoutMs:30000}") long totalTimeoutMs,
+                                 @Value("${spring.app.scraper.maxBodyBytes:2097152}") long maxBodyBytes,
+                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.totalTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(totalTimeoutMs);
+        this.maxBodyBytes = maxBodyBytes;
+        this.watchdog = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().name("page-fetch-watchdog").daemon().factory());
+        // most bodies are read well before their deadline: don't keep the cancelled timers queued
+        this.watchdog.setRemoveOnCancelPolicy(true);
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(timeout);
+        this.executor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        this.client = builder.build();
+    }
+
+    @Override
+    public FetchedPage fetch(String url, String etag, String lastModified) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = request(url, "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8");
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            builder.header("If-Modified-Since", lastModified);
+        }
+
+        long deadline = System.nanoTime() + totalTimeoutNanos;
+        HttpResponse<InputStream> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        String finalUrl = response.uri().toString();
+        String responseEtag = response.headers().firstValue("ETag").orElse(null);
+        String responseLastModified = response.headers().firstValue("Last-Modified").orElse(null);
+
+        if (response.statusCode() == 304) {
+            response.body().close();
+            return new FetchedPage(finalUrl, 304, null, false, responseEtag, responseLastModified,
+                    InputStream.nullInputStream());
+        }
+
+        // same checks (and exceptions) as Jsoup.connect(url).get()
+        checkStatus(response, finalUrl);
+
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+        if (contentType != null
+                && !contentType.startsWith("text/")
+                && !XML_CONTENT_TYPE.matcher(contentType).matches()) {
+            response.body().close();
+            throw new UnsupportedMimeTypeException("Unhandled content type. Must be text/*, */xml, or */*+xml",
+                    contentType, finalUrl);
+        }
+
+        boolean xml = contentType != null && XML_CONTENT_TYPE.matcher(contentType).matches();
+        InputStream body = decode(response, new DeadlineInputStream(response.body(), watchdog, deadline));
+
+        return new FetchedPage(finalUrl, response.statusCode(), charsetOf(contentType), xml,
+                responseEtag, responseLastModified, new LimitedInputStream(body, maxBodyBytes));
+    }
+
+    @Override
+    public FetchedPage fetchResource(String url, long maxBodyBytes, Duration timeout)
+            throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        HttpRequest request = request(url, "application/xml,text/xml;q=0.9,*/*;q=0.8").build();
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        String finalUrl = response.uri().toString();
+        checkStatus(response, finalUrl);
+
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+        InputStream body = decode(response, new DeadlineInputStream(response.body(), watchdog, deadline));
+        return new FetchedPage(finalUrl, response.statusCode(), charsetOf(contentType), true,
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null),
+                new LimitedInputStream(body, maxBodyBytes));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        watchdog.shutdownNow();
+        // fetches still in flight fail instead of holding up the shutdown
+        client.shutdownNow();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private HttpRequest.Builder request(String url, String accept) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("User-Agent", "Mozilla/5.0")
+                .header("Accept", accept)
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET();
+    }
+
+    private static void checkStatus(HttpResponse<InputStream> response, String finalUrl) throws IOException {
+        if (response.statusCode() < 200 || response.statusCode() >= 400) {
+            response.body().close();
+            throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), finalUrl);
+        }
+    }
+
+    // GZIPInputStream reads the header right away: a body that isn't gzip fails here and must not be left open
+    private static InputStream decode(HttpResponse<InputStream> response, InputStream body) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+        try {
+            return switch (encoding) {
+                case "gzip", "x-gzip" -> new GZIPInputStream(body);
+                case "deflate" -> new InflaterInputStream(body);
+                default -> body;
+            };
+        } catch (IOException | RuntimeException e) {
+            body.close();
+            throw e;
+        }
+    }
+
+    private static String charsetOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        Matcher matcher = CHARSET.matcher(contentType);
+        if (matcher.find()) {
+            String charset = matcher.group(1);
+            try {
+                if (!charset.isEmpty() && Charset.isSupported(charset)) {
+                    return charset;
+                }
+            } catch (IllegalArgumentException ignored) {
+                // illegal charset name, let Jsoup detect it from the document
+            }
+        }
+        return null;
+    }
+
+    // Stops reading at maxBytes, like Jsoup's default maxBodySize, so a huge page can't exhaust the heap
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.remaining = maxBytes <= 0 ? Long.MAX_VALUE : maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(buf, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    // Closes the response body once the deadline passes, which wakes up a read blocked on a stalled origin
+    private static class DeadlineInputStream extends FilterInputStream {
+        private final ScheduledFuture<?> timer;
+        private volatile boolean expired;
+
+        DeadlineInputStream(InputStream in, ScheduledThreadPoolExecutor watchdog, long deadline) {
+            super(in);
+            this.timer = watchdog.schedule(this::expire, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        private void expire() {
+            expired = true;
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // the reader sees the timeout on its next read either way
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                throw timeoutOr(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            try {
+                return super.read(buf, off, len);
+            } catch (IOException e) {
+                throw timeoutOr(e);
+            }
+        }
+
+        private IOException timeoutOr(IOException e) {
+            if (!expired) {
+                return e;
+            }
+            HttpTimeoutException timeout = new HttpTimeoutException("response body not received in time");
+            timeout.initCause(e);
+            return timeout;
+        }
+
+        @Override
+        public void close() throws IOException {
+            timer.cancel(false);
+            super.close();
+        }
+    }
+}
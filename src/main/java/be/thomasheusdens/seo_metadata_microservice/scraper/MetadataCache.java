@@ -0,0 +1,140 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * In-process cache of extracted metadata, keyed on the normalized URL and the requested field groups.
+ * Entries are fresh for a TTL and are evicted once the estimated retained size exceeds the configured max weight.
+ * Entries that came with an {@code ETag} or {@code Last-Modified} validator are kept longer, stale, so the next
+ * request can revalidate them with a conditional GET instead of downloading and parsing the page again.
+ * Hit, miss and eviction counts are published as {@code cache.*} metrics tagged {@code cache=scraper.metadata}.
+ * <p>
+ * The cache keeps its own copy of the metadata and hands out copies, so a caller changing the object it got back
+ * can't change what later requests are served.
+ */
+@Component
+public class MetadataCache {
+
+    private final Cache<Key, Entry> cache;
+    private final Duration ttl;
+
+    public MetadataCache(@Value("${spring.app.scraper.cache.ttlSeconds:300}") long ttlSeconds,
+                         @Value("${spring.app.scraper.cache.revalidateSeconds:86400}") long revalidateSeconds,
+                         @Value("${spring.app.scraper.cache.maxWeightBytes:67108864}") long maxWeightBytes,
+                         MeterRegistry registry) {
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        Duration retain = Duration.ofSeconds(Math.max(ttlSeconds, revalidateSeconds));
+
+        this.cache = Caffeine.newBuilder()
+                .expireAfter(Expiry.writing((Key key, Entry entry) -> entry.hasValidators() ? retain : ttl))
+                .maximumWeight(maxWeightBytes)
+                .weigher((Key key, Entry entry) -> weigh(key, entry))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "scraper.metadata");
+    }
+
+    /**
+     * Returns the cached entry, fresh or stale; check {@link Entry#isFresh()} before serving it as-is.
+     */
+    public Entry get(String url, Set<MetadataField> fields) {
+        return cache.getIfPresent(key(url, fields));
+    }
+
+    public void put(String url, Set<MetadataField> fields, ScraperMetadata metadata, String etag, String lastModified) {
+        cache.put(key(url, fields),
+                new Entry(metadata.copy(), etag, lastModified, System.nanoTime() + ttl.toNanos()));
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    /**
+     * How a request with this {@code Cache-Control} header may use the cache: {@code no-store} neither reads nor
+     * writes it, {@code no-cache} skips the fresh entry but revalidates a stale one and stores the result.
+     */
+    public static Policy policy(String cacheControl) {
+        String value = cacheControl == null ? "" : cacheControl.toLowerCase(Locale.ROOT);
+        if (value.contains("no-store")) {
+            return Policy.NO_STORE;
+        }
+        return value.contains("no-cache") ? Policy.REVALIDATE : Policy.USE;
+    }
+
+    static Key key(String url, Set<MetadataField> fields) {
+        return new Key(UrlNormalizer.normalize(url), fields.isEmpty()
+                ? EnumSet.noneOf(MetadataField.class) : EnumSet.copyOf(fields));
+    }
+
+    // -------- WEIGHT ESTIMATE --------
+    // rough retained size in bytes: object headers plus 2 bytes per char (Latin-1 strings are smaller, so this errs high)
+
+    static int weigh(Key key, Entry entry) {
+        ScraperMetadata m = entry.metadata;
+        long size = 256 + size(key.url()); // cache node, key, field set, entry and ScraperMetadata object
+        size += size(entry.etag()) + size(entry.lastModified());
+        size += size(m.getUrl()) + size(m.getTitle()) + size(m.getDescription()) + size(m.getCanonicalUrl())
+                + size(m.getKeywords()) + size(m.getOgTitle()) + size(m.getOgDescription()) + size(m.getOgImage())
+                + size(m.getH1()) + size(m.getFavicon()) + size(m.getAppleTouchIcon()) + size(m.getRobots())
+                + size(m.getViewport()) + size(m.getTwitterTitle()) + size(m.getTwitterDescription())
+                + size(m.getTwitterImage());
+        size += size(m.getHreflangs()) + size(m.getJsonLdList()) + size(m.getImages());
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    private static long size(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+
+    private static long size(List<String> values) {
+        if (values == null) {
+            return 0;
+        }
+        long size = 40 + 8L * values.size();
+        for (String value : values) {
+            size += size(value);
+        }
+        return size;
+    }
+
+    public enum Policy {
+        USE, REVALIDATE, NO_STORE
+    }
+
+    record Key(String url, Set<MetadataField> fields) {
+    }
+
+    public record Entry(ScraperMetadata metadata, String etag, String lastModified, long freshUntilNanos) {
+
+        @Override
+        public ScraperMetadata metadata() {
+            return metadata.copy();
+        }
+
+        public boolean isFresh() {
+            return freshUntilNanos - System.nanoTime() > 0;
+        }
+
+        public boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+    }
+}
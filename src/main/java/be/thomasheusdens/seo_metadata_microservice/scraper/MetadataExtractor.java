@@ -0,0 +1,436 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import org.jsoup.internal.StringUtil;
+import org.jsoup.nodes.CDataNode;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.StreamParser;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fills every {@link ScraperMetadata} field in a single depth-first pass over a Jsoup {@link Document},
+ * instead of running one {@code doc.select(...)} query (and one full document walk) per field.
+ * <p>
+ * Matching follows the semantics of the selectors it replaces: attribute values are compared
+ * case-insensitively, and a field takes the value of the first matching element that carries the attribute.
+ * <p>
+ * Only the requested {@link MetadataField} groups are extracted; the fields of any other group are left null.
+ * In head-only mode only the {@code <head>} subtree is visited.
+ * <p>
+ * When a link list is passed (crawling), the absolute URL of every {@code <a href>} is collected in the same pass.
+ */
+class MetadataExtractor implements NodeVisitor {
+
+    private final String url;
+    private final Set<MetadataField> fields;
+    private final Element head;
+    private final Element body;
+    private final List<String> links;
+
+    private boolean inHead;
+    private boolean inBody;
+
+    private String title;
+    private String description;
+    private String canonical;
+    private String keywords;
+    private String ogTitle;
+    private String ogDescription;
+    private String ogImage;
+    private final List<String> h1Texts = new ArrayList<>();
+    private String favicon;
+    private String shortcutIcon;
+    private String appleTouchIcon;
+    private final List<String> hreflangs = new ArrayList<>();
+    private String robots;
+    private String viewport;
+    private final List<String> jsonLdList = new ArrayList<>();
+    private String twitterTitle;
+    private String twitterDescription;
+    private String twitterImage;
+    private int internalLinksCount;
+    private int externalLinksCount;
+    private final List<String> images = new ArrayList<>();
+    private long missingAltCount;
+    private final WordCounter words = new WordCounter();
+
+    private MetadataExtractor(String url, Set<MetadataField> fields, Element head, Element body, List<String> links) {
+        this.url = url;
+        this.fields = fields;
+        this.head = head;
+        this.body = body;
+        this.links = links;
+    }
+
+    static ScraperMetadata extract(String url, Document doc) {
+        return extract(url, doc, MetadataField.all());
+    }
+
+    static ScraperMetadata extract(String url, Document doc, Set<MetadataField> fields) {
+        if (MetadataField.allInHead(fields)) {
+            return extractHead(url, doc.head(), fields);
+        }
+        return extract(url, doc, fields, null);
+    }
+
+    /**
+     * Walks the whole document, also adding the absolute URL of every link to {@code links} when it isn't null.
+     */
+    static ScraperMetadata extract(String url, Document doc, Set<MetadataField> fields, List<String> links) {
+        MetadataExtractor extractor = new MetadataExtractor(url, fields, doc.head(), doc.body(), links);
+        NodeTraversor.traverse(extractor, doc);
+        return extractor.toMetadata();
+    }
+
+    static ScraperMetadata extractHead(String url, Element head, Set<MetadataField> fields) {
+        Set<MetadataField> headFields = EnumSet.noneOf(MetadataField.class);
+        headFields.addAll(fields);
+        headFields.removeIf(field -> !field.isHead());
+
+        MetadataExtractor extractor = new MetadataExtractor(url, headFields, head, null, null);
+        NodeTraversor.traverse(extractor, head);
+        return extractor.toMetadata();
+    }
+
+    /**
+     * Advances the stream parser only until the {@code <head>} element is closed, so the rest of the
+     * input is never read or parsed. The caller is responsible for closing the parser.
+     */
+    static ScraperMetadata extractHead(String url, StreamParser parser, Set<MetadataField> fields) throws IOException {
+        Element head = parser.selectNext("head");
+        if (head == null) {
+            head = parser.document().head();
+        }
+        return extractHead(url, head, fields);
+    }
+
+    @Override
+    public void head(Node node, int depth) {
+        if (node == head) {
+            inHead = true;
+        } else if (node == body) {
+            inBody = true;
+        }
+
+        if (inBody && fields.contains(MetadataField.CONTENT)) {
+            words.head(node);
+        }
+
+        if (node instanceof Element el) {
+            visitElement(el);
+        }
+    }
+
+    @Override
+    public void tail(Node node, int depth) {
+        if (inBody && fields.contains(MetadataField.CONTENT)) {
+            words.tail(node);
+        }
+
+        if (node == head) {
+            inHead = false;
+        } else if (node == body) {
+            inBody = false;
+        }
+    }
+
+    private void visitElement(Element el) {
+        switch (el.normalName()) {
+            case "title" -> {
+                // -------- BASIC SEO TAGS --------
+                if (inHead && title == null && fields.contains(MetadataField.TITLE)) {
+                    title = StringUtil.normaliseWhitespace(el.text()).trim();
+                }
+            }
+            case "meta" -> visitMeta(el);
+            case "link" -> visitLink(el);
+            case "h1" -> {
+                // -------- HEADINGS --------
+                if (fields.contains(MetadataField.H1)) {
+                    h1Texts.add(el.text());
+                }
+            }
+            case "script" -> {
+                // -------- STRUCTURED DATA --------
+                if (fields.contains(MetadataField.JSONLD) && attrIs(el, "type", "application/ld+json")) {
+                    String data = el.data();
+                    if (!data.isBlank()) {
+                        jsonLdList.add(data);
+                    }
+                }
+            }
+            case "a" -> {
+                // -------- LINKS --------
+                if (links != null && el.hasAttr("href")) {
+                    String absolute = el.absUrl("href");
+                    if (!absolute.isEmpty()) {
+                        links.add(absolute);
+                    }
+                }
+                if (fields.contains(MetadataField.LINKS) && el.hasAttr("href")) {
+                    String href = el.attr("href");
+                    if (href.startsWith("/")) {
+                        internalLinksCount++;
+                    }
+                    if (href.regionMatches(true, 0, "http", 0, 4)) {
+                        externalLinksCount++;
+                    }
+                }
+            }
+            case "img" -> {
+                // -------- IMAGES & ALT TEXT --------
+                if (fields.contains(MetadataField.IMAGES)) {
+                    if (el.hasAttr("src")) {
+                        images.add(el.attr("src"));
+                    }
+                    if (el.attr("alt").isBlank()) {
+                        missingAltCount++;
+                    }
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void visitMeta(Element el) {
+        String name = el.attr("name").trim();
+        if (name.equalsIgnoreCase("description")) {
+            description = firstAttr(description, el, "content");
+        } else if (name.equalsIgnoreCase("keywords")) {
+            keywords = firstAttr(keywords, el, "content");
+        } else if (name.equalsIgnoreCase("robots")) {
+            robots = firstAttr(robots, el, "content");
+        } else if (name.equalsIgnoreCase("viewport")) {
+            viewport = firstAttr(viewport, el, "content");
+        } else if (name.equalsIgnoreCase("twitter:title")) {
+            twitterTitle = firstAttr(twitterTitle, el, "content");
+        } else if (name.equalsIgnoreCase("twitter:description")) {
+            twitterDescription = firstAttr(twitterDescription, el, "content");
+        } else if (name.equalsIgnoreCase("twitter:image")) {
+            twitterImage = firstAttr(twitterImage, el, "content");
+        }
+
+        String property = el.attr("property").trim();
+        if (property.equalsIgnoreCase("og:title")) {
+            ogTitle = firstAttr(ogTitle, el, "content");
+        } else if (property.equalsIgnoreCase("og:description")) {
+            ogDescription = firstAttr(ogDescription, el, "content");
+        } else if (property.equalsIgnoreCase("og:image")) {
+            ogImage = firstAttr(ogImage, el, "content");
+        }
+    }
+
+    private void visitLink(Element el) {
+        String rel = el.attr("rel").trim();
+        if (rel.equalsIgnoreCase("canonical")) {
+            canonical = firstAttr(canonical, el, "href");
+        } else if (rel.equalsIgnoreCase("icon")) {
+            favicon = firstAttr(favicon, el, "href");
+        } else if (rel.equalsIgnoreCase("shortcut icon")) {
+            shortcutIcon = firstAttr(shortcutIcon, el, "href");
+        } else if (rel.equalsIgnoreCase("apple-touch-icon")) {
+            appleTouchIcon = firstAttr(appleTouchIcon, el, "href");
+        } else if (rel.equalsIgnoreCase("alternate") && el.hasAttr("hreflang") && fields.contains(MetadataField.HREFLANG)) {
+            // -------- INTERNATIONALIZATION --------
+            hreflangs.add(el.attr("hreflang") + " -> " + el.attr("href"));
+        }
+    }
+
+    private ScraperMetadata toMetadata() {
+        return new ScraperMetadata(
+                url,
+                pick(MetadataField.TITLE, orEmpty(title)),
+                pick(MetadataField.DESCRIPTION, orEmpty(description)),
+                pick(MetadataField.CANONICAL, orEmpty(canonical)),
+                pick(MetadataField.KEYWORDS, orEmpty(keywords)),
+                pick(MetadataField.OG, orEmpty(ogTitle)),
+                pick(MetadataField.OG, orEmpty(ogDescription)),
+                pick(MetadataField.OG, orEmpty(ogImage)),
+                pick(MetadataField.H1, String.join(" ", h1Texts)),
+                pick(MetadataField.ICONS, icon()),
+                pick(MetadataField.ICONS, orEmpty(appleTouchIcon)),
+                pick(MetadataField.HREFLANG, hreflangs),
+                pick(MetadataField.ROBOTS, orEmpty(robots)),
+                pick(MetadataField.VIEWPORT, orEmpty(viewport)),
+                pick(MetadataField.JSONLD, jsonLdList),
+                pick(MetadataField.TWITTER, orEmpty(twitterTitle)),
+                pick(MetadataField.TWITTER, orEmpty(twitterDescription)),
+                pick(MetadataField.TWITTER, orEmpty(twitterImage)),
+                pick(MetadataField.LINKS, internalLinksCount),
+                pick(MetadataField.LINKS, externalLinksCount),
+                pick(MetadataField.IMAGES, images),
+                pick(MetadataField.IMAGES, missingAltCount),
+                pick(MetadataField.CONTENT, words.count())
+        );
+    }
+
+    // Fields of groups that were not requested are reported as null (not computed)
+    private <T> T pick(MetadataField field, T value) {
+        return fields.contains(field) ? value : null;
+    }
+
+    private String icon() {
+        String icon = orEmpty(favicon);
+        if (icon.isEmpty()) {
+            icon = orEmpty(shortcutIcon);
+        }
+        return icon;
+    }
+
+    // Same matching as a [key=value] selector: the attribute value is trimmed and compared case-insensitively.
+    private static boolean attrIs(Element el, String key, String value) {
+        return el.hasAttr(key) && value.equalsIgnoreCase(el.attr(key).trim());
+    }
+
+    private static String firstAttr(String current, Element el, String key) {
+        if (current == null && el.hasAttr(key)) {
+            return el.attr(key);
+        }
+        return current;
+    }
+
+    private static String orEmpty(String s) {
+        return s == null ? "" : s;
+    }
+
+    /**
+     * Counts words the way {@code body.text().split("\\s+").length} does, without building the body text.
+     * Mirrors Jsoup's text accumulation (whitespace normalisation, spaces around block elements) and then
+     * the effect of {@code trim()} and the regex split on the string that would have been produced.
+     */
+    private static class WordCounter {
+        private boolean started;
+        private char last;
+
+        private boolean inToken;
+        private boolean tokenHasText;
+        private boolean seenText;
+        private int tokens;
+        private int leadingControlTokens;
+        private int trailingControlTokens;
+
+        void head(Node node) {
+            if (node instanceof TextNode textNode) {
+                String text = textNode.getWholeText();
+                if (node instanceof CDataNode || preserveWhitespace(textNode.parent())) {
+                    appendRaw(text);
+                } else {
+                    appendNormalised(text);
+                }
+            } else if (node instanceof Element el) {
+                if (started && (el.isBlock() || el.nameIs("br")) && last != ' ') {
+                    append(' ');
+                }
+            }
+        }
+
+        void tail(Node node) {
+            if (node instanceof Element el) {
+                Node next = node.nextSibling();
+                if (!el.tag().isInline()
+                        && (next instanceof TextNode || next instanceof Element nextEl && nextEl.tag().isInline())
+                        && last != ' ') {
+                    append(' ');
+                }
+            }
+        }
+
+        int count() {
+            if (!seenText) {
+                return 1;
+            }
+            return tokens - leadingControlTokens - trailingControlTokens;
+        }
+
+        private void appendRaw(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                append(text.charAt(i));
+            }
+        }
+
+        private void appendNormalised(String text) {
+            boolean stripLeading = last == ' ' && started;
+            boolean lastWasWhite = false;
+            boolean reachedNonWhite = false;
+
+            int c;
+            for (int i = 0; i < text.length(); i += Character.charCount(c)) {
+                c = text.codePointAt(i);
+                if (StringUtil.isActuallyWhitespace(c)) {
+                    if ((stripLeading && !reachedNonWhite) || lastWasWhite) {
+                        continue;
+                    }
+                    append(' ');
+                    lastWasWhite = true;
+                } else if (!StringUtil.isInvisibleChar(c)) {
+                    if (Character.isBmpCodePoint(c)) {
+                        append((char) c);
+                    } else {
+                        append(Character.highSurrogate(c));
+                        append(Character.lowSurrogate(c));
+                    }
+                    lastWasWhite = false;
+                    reachedNonWhite = true;
+                }
+            }
+        }
+
+        // Control characters are dropped by trim() at either end but still count as words in between.
+        private void append(char c) {
+            started = true;
+            last = c;
+
+            if (isRegexWhitespace(c)) {
+                inToken = false;
+                return;
+            }
+
+            if (!inToken) {
+                inToken = true;
+                tokenHasText = false;
+                tokens++;
+                if (seenText) {
+                    trailingControlTokens++;
+                } else {
+                    leadingControlTokens++;
+                }
+            }
+
+            if (c > ' ' && !tokenHasText) {
+                tokenHasText = true;
+                if (seenText) {
+                    trailingControlTokens = 0;
+                } else {
+                    leadingControlTokens--;
+                    seenText = true;
+                }
+            }
+        }
+
+        private static boolean isRegexWhitespace(char c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+        }
+
+        private static boolean preserveWhitespace(Element el) {
+            int i = 0;
+            while (el != null && i < 6) {
+                if (el.tag().preserveWhitespace()) {
+                    return true;
+                }
+                el = el.parent();
+                i++;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Metadata groups a client can project with the {@code fields=} query parameter.
+ * Groups that live in {@code <head>} can be extracted without parsing the body.
+ */
+public enum MetadataField {
+    TITLE(true),
+    DESCRIPTION(true),
+    CANONICAL(true),
+    KEYWORDS(true),
+    OG(true),
+    TWITTER(true),
+    ICONS(true),
+    HREFLANG(true),
+    ROBOTS(true),
+    VIEWPORT(true),
+    H1(false),
+    JSONLD(false),
+    LINKS(false),
+    IMAGES(false),
+    CONTENT(false);
+
+    private final boolean head;
+
+    MetadataField(boolean head) {
+        this.head = head;
+    }
+
+    public boolean isHead() {
+        return head;
+    }
+
+    public static Set<MetadataField> all() {
+        return EnumSet.allOf(MetadataField.class);
+    }
+
+    public static boolean allInHead(Set<MetadataField> fields) {
+        return fields.stream().allMatch(MetadataField::isHead);
+    }
+
+    /**
+     * Parses a comma-separated list such as {@code og,twitter,robots}. A missing or blank list selects every group;
+     * {@link ExtractionMode#HEAD} narrows the selection to the head groups.
+     */
+    public static Set<MetadataField> parse(String fields, ExtractionMode mode) {
+        Set<MetadataField> selected;
+        if (fields == null || fields.isBlank()) {
+            selected = all();
+        } else {
+            selected = EnumSet.noneOf(MetadataField.class);
+            for (String name : fields.split(",")) {
+                if (name.isBlank()) {
+                    continue;
+                }
+                try {
+                    selected.add(valueOf(name.trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown metadata field: " + name.trim());
+                }
+            }
+        }
+
+        if (mode == ExtractionMode.HEAD) {
+            selected.removeIf(field -> !field.isHead());
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,28 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Downloads a page for the scraper. Implementations own the transport (connection pooling, protocol, decoding);
+ * Jsoup only parses the body of the returned {@link FetchedPage}.
+ */
+public interface PageFetcher {
+
+    default FetchedPage fetch(String url) throws IOException, InterruptedException {
+        return fetch(url, null, null);
+    }
+
+    /**
+     * Conditional fetch: sends {@code If-None-Match} / {@code If-Modified-Since} for the validators that are not null.
+     * An unchanged page comes back as a {@link FetchedPage#isNotModified() 304} without a body.
+     */
+    FetchedPage fetch(String url, String etag, String lastModified) throws IOException, InterruptedException;
+
+    /**
+     * Downloads a file that isn't a page, such as a sitemap: any content type is accepted, only the
+     * {@code Content-Encoding} is decoded, the body stops after {@code maxBodyBytes} instead of the page limit and
+     * reading it fails once {@code timeout} has passed since the request was sent.
+     */
+    FetchedPage fetchResource(String url, long maxBodyBytes, Duration timeout) throws IOException, InterruptedException;
+}
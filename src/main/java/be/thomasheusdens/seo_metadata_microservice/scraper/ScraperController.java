@@ -1,22 +1,46 @@
 package be.thomasheusdens.seo_metadata_microservice.scraper;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+import java.util.Set;
+
 @RestController
 public class ScraperController {
 
     private final ScraperService scraperService;
+    private final BatchExecutor batchExecutor;
 
-    public ScraperController(ScraperService scraperService) {
+    public ScraperController(ScraperService scraperService, BatchExecutor batchExecutor) {
         this.scraperService = scraperService;
+        this.batchExecutor = batchExecutor;
     }
 
     @PreAuthorize("isAuthenticated()")
     @GetMapping("/api/scraper/extract")
-    public ScraperMetadata extract(@RequestParam String url) throws Exception {
-        return scraperService.extractMetadata(url);
+    public ScraperMetadata extract(@RequestParam String url,
+                                   @RequestParam(defaultValue = "FULL") ExtractionMode mode,
+                                   @RequestParam(required = false) String fields,
+                                   @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false)
+                                   String cacheControl) throws Exception {
+        return scraperService.extractMetadata(url, MetadataField.parse(fields, mode), MetadataCache.policy(cacheControl));
+    }
+
+    @PreAuthorize("isAuthenticated()")
+    @PostMapping("/api/scraper/extract/batch")
+    public List<BatchItem<ScraperMetadata>> extractBatch(@RequestBody BatchRequest request,
+                                                         @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false)
+                                                         String cacheControl) {
+        Set<MetadataField> fields = MetadataField.parse(request.getFields(), request.getMode());
+        MetadataCache.Policy cachePolicy = MetadataCache.policy(cacheControl);
+        return batchExecutor.run(request.getUrls(), request.getParallelism(),
+                url -> scraperService.extractMetadata(url, fields, cachePolicy));
     }
-}
\ No newline at end of file
+}
@@ -2,15 +2,20 @@ package be.thomasheusdens.seo_metadata_microservice.scraper;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Getter
 @Setter
 @AllArgsConstructor
+@NoArgsConstructor
 public class ScraperMetadata {
 
+    // Fields of metadata groups that were not requested (see MetadataField) are null: not computed
+
     private String url;
 
     // --- BASIC SEO TAGS ---
@@ -47,13 +52,27 @@ public class ScraperMetadata {
     private String twitterImage;
 
     // --- LINKS ---
-    private int internalLinksCount;
-    private int externalLinksCount;
+    private Integer internalLinksCount;
+    private Integer externalLinksCount;
 
     // --- IMAGES ---
     private List<String> images;
-    private long missingAltCount;
+    private Long missingAltCount;
 
     // --- PAGE CONTENT ---
-    private int wordCount;
+    private Integer wordCount;
+
+    /**
+     * Copy that shares no mutable state with this one (the lists are copied too).
+     */
+    public ScraperMetadata copy() {
+        return new ScraperMetadata(url, title, description, canonicalUrl, keywords, ogTitle, ogDescription, ogImage,
+                h1, favicon, appleTouchIcon, copy(hreflangs), robots, viewport, copy(jsonLdList), twitterTitle,
+                twitterDescription, twitterImage, internalLinksCount, externalLinksCount, copy(images),
+                missingAltCount, wordCount);
+    }
+
+    private static List<String> copy(List<String> values) {
+        return values == null ? null : new ArrayList<>(values);
+    }
 }
\ No newline at end of file
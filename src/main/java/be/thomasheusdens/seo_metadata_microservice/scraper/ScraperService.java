@@ -1,127 +1,124 @@
 package be.thomasheusdens.seo_metadata_microservice.scraper;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jsoup.HttpStatusException;
+import org.jsoup.parser.StreamParser;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 public class ScraperService {
 
-    public ScraperMetadata extractMetadata(String url) throws Exception {
-        Document doc = Jsoup.connect(url)
-                .userAgent("Mozilla/5.0")
-                .timeout(10000)
-                .get();
-
-        // -------- BASIC SEO TAGS --------
-        String title = doc.title();
-
-        String description = doc.select("meta[name=description]").attr("content");
-
-        String canonical = doc.select("link[rel=canonical]").attr("href");
-
-        String keywords = doc.select("meta[name=keywords]").attr("content");
-
-
-        // -------- OPEN GRAPH TAGS --------
-        String ogTitle = doc.select("meta[property=og:title]").attr("content");
-
-        String ogDescription = doc.select("meta[property=og:description]").attr("content");
-
-        String ogImage = doc.select("meta[property=og:image]").attr("content");
-
+    private final PageFetcher pageFetcher;
+    private final HostScheduler hostScheduler;
+    private final MetadataCache metadataCache;
+    private final SingleFlight<MetadataCache.Key, ScraperMetadata> inFlight;
+    private final Counter notModified;
+    private final Counter modified;
+
+    public ScraperService(PageFetcher pageFetcher, HostScheduler hostScheduler, MetadataCache metadataCache,
+                          MeterRegistry registry) {
+        this.pageFetcher = pageFetcher;
+        this.hostScheduler = hostScheduler;
+        this.metadataCache = metadataCache;
+        this.inFlight = new SingleFlight<>("scraper.extract", registry, ScraperMetadata::copy);
+        this.notModified = Counter.builder("scraper.revalidations").tag("result", "not_modified").register(registry);
+        this.modified = Counter.builder("scraper.revalidations").tag("result", "modified").register(registry);
+    }
 
-        // -------- HEADINGS --------
-        String h1 = doc.select("h1").text();
+    public ScraperMetadata extractMetadata(String url) throws Exception {
+        return extractMetadata(url, MetadataField.all());
+    }
 
+    public ScraperMetadata extractMetadata(String url, Set<MetadataField> fields) throws Exception {
+        return extractMetadata(url, fields, MetadataCache.Policy.USE);
+    }
 
-        // -------- ICONS --------
-        String favicon = doc.select("link[rel=icon]").attr("href");
-        if (favicon.isEmpty()) {
-            favicon = doc.select("link[rel=shortcut icon]").attr("href");
+    /**
+     * @param policy {@code REVALIDATE} (Cache-Control: no-cache) skips the fresh cached entry; a cached entry with
+     *               validators is still revalidated, and the result replaces it. {@code NO_STORE} fetches the page
+     *               on its own, without reading or writing the cache.
+     */
+    public ScraperMetadata extractMetadata(String url, Set<MetadataField> fields, MetadataCache.Policy policy)
+            throws Exception {
+        if (policy == MetadataCache.Policy.NO_STORE) {
+            try (HostScheduler.Permit permit = hostScheduler.acquire(url);
+                 FetchedPage page = pageFetcher.fetch(url)) {
+                return extract(url, fields, page);
+            }
         }
 
-        String appleTouchIcon = doc.select("link[rel=apple-touch-icon]").attr("href");
-
-
-        // -------- INTERNATIONALIZATION --------
-        // NEW: hreflang list (each link element)
-        List<String> hreflangs = doc.select("link[rel=alternate][hreflang]")
-                .stream()
-                .map(el -> el.attr("hreflang") + " -> " + el.attr("href"))
-                .collect(Collectors.toList());
-
-
-        // -------- ROBOTS & VIEWPORT --------
-        String robots = doc.select("meta[name=robots]").attr("content");
-
-        String viewport = doc.select("meta[name=viewport]").attr("content");
-
-
-        // -------- STRUCTURED DATA --------
-        List<String> jsonLdList = doc.select("script[type=application/ld+json]")
-                .stream()
-                .map(Element::data)
-                .filter(text -> !text.isBlank())
-                .collect(Collectors.toList());
-
-
-
-        // -------- TWITTER TAGS --------
-        String twitterTitle = doc.select("meta[name=twitter:title]").attr("content");
-        String twitterDescription = doc.select("meta[name=twitter:description]").attr("content");
-        String twitterImage = doc.select("meta[name=twitter:image]").attr("content");
-
-
-        // -------- LINKS --------
-        int internalLinksCount = doc.select("a[href^='/']").size();
-
-        int externalLinksCount = doc.select("a[href^='http']").size();
-
+        MetadataCache.Entry cached = metadataCache.get(url, fields);
+        if (cached != null && cached.isFresh() && policy == MetadataCache.Policy.USE) {
+            return cached.metadata();
+        }
 
-        // -------- IMAGES & ALT TEXT --------
-        List<String> images = doc.select("img")
-                .eachAttr("src");
+        // concurrent requests for the same page share one fetch-and-parse, cached or not
+        MetadataCache.Entry stale = cached != null && cached.hasValidators() ? cached : null;
+        return inFlight.run(MetadataCache.key(url, fields), () -> fetchAndExtract(url, fields, stale));
+    }
 
-        long missingAltCount = doc.select("img")
-                .stream()
-                .filter(img -> img.attr("alt").isBlank())
-                .count();
+    private ScraperMetadata fetchAndExtract(String url, Set<MetadataField> fields, MetadataCache.Entry stale)
+            throws Exception {
+        String etag = stale != null ? stale.etag() : null;
+        String lastModified = stale != null ? stale.lastModified() : null;
+
+        // the host permit is held until the page is closed, including while the body streams in
+        try (HostScheduler.Permit permit = hostScheduler.acquire(url);
+             FetchedPage page = pageFetcher.fetch(url, etag, lastModified)) {
+
+            // -------- CONDITIONAL REVALIDATION --------
+            // 304: the stored metadata is still valid, no body to download or parse
+            if (page.isNotModified()) {
+                if (stale == null) {
+                    throw new HttpStatusException("HTTP error fetching URL", 304, page.getUrl());
+                }
+                notModified.increment();
+                metadataCache.put(url, fields, stale.metadata(),
+                        page.getEtag() != null ? page.getEtag() : stale.etag(),
+                        page.getLastModified() != null ? page.getLastModified() : stale.lastModified());
+                return stale.metadata();
+            }
+            if (stale != null) {
+                modified.increment();
+            }
+
+            ScraperMetadata metadata = extract(url, fields, page);
+            metadataCache.put(url, fields, metadata, page.getEtag(), page.getLastModified());
+            return metadata;
+        }
+    }
 
+    /**
+     * Fetches and parses the whole page (even when every group lives in {@code <head>}) to also collect its links.
+     * Always fetches; the metadata replaces the cached entry, so a later analyze of the page is served from cache.
+     */
+    public CrawledPage crawl(String url, Set<MetadataField> fields) throws Exception {
+        try (HostScheduler.Permit permit = hostScheduler.acquire(url);
+             FetchedPage page = pageFetcher.fetch(url)) {
+            List<String> links = new ArrayList<>();
+            ScraperMetadata metadata = MetadataExtractor.extract(url, page.parse(), fields, links);
+            metadataCache.put(url, fields, metadata, page.getEtag(), page.getLastModified());
+            return new CrawledPage(page.getUrl(), metadata, links);
+        }
+    }
 
-        // -------- PAGE WORD COUNT --------
-        int wordCount = doc.body().text().split("\\s+").length;
+    private static ScraperMetadata extract(String url, Set<MetadataField> fields, FetchedPage page) throws Exception {
 
+        // -------- HEAD-ONLY STREAMING EXTRACTION --------
+        // used whenever every requested group lives in <head>
+        if (MetadataField.allInHead(fields)) {
+            // closing the page aborts the transfer, so the body is never downloaded
+            try (StreamParser parser = page.streamParser()) {
+                return MetadataExtractor.extractHead(url, parser, fields);
+            }
+        }
 
-        // -------- RETURN METADATA --------
-        return new ScraperMetadata(
-                url,
-                title,
-                description,
-                canonical,
-                keywords,
-                ogTitle,
-                ogDescription,
-                ogImage,
-                h1,
-                favicon,
-                appleTouchIcon,
-                hreflangs,
-                robots,
-                viewport,
-                jsonLdList,
-                twitterTitle,
-                twitterDescription,
-                twitterImage,
-                internalLinksCount,
-                externalLinksCount,
-                images,
-                missingAltCount,
-                wordCount
-        );
+        // -------- SINGLE-PASS EXTRACTION --------
+        return MetadataExtractor.extract(url, page.parse(), fields);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,79 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the task, callers arriving while it is in flight
+ * wait for and share its result (or exception). Nothing is kept once the task completes.
+ * For a mutable result pass a {@code copy} function: the flight keeps its own copy and every waiting caller gets a
+ * fresh one, so no two callers hold the same instance.
+ * Calls are counted as {@code <name>.calls} tagged {@code result=executed|coalesced}.
+ */
+public class SingleFlight<K, V> {
+
+    @FunctionalInterface
+    public interface Task<V> {
+        V call() throws Exception;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter coalesced;
+    private final UnaryOperator<V> copy;
+
+    public SingleFlight(String name, MeterRegistry registry) {
+        this(name, registry, UnaryOperator.identity());
+    }
+
+    public SingleFlight(String name, MeterRegistry registry, UnaryOperator<V> copy) {
+        this.copy = copy;
+        this.executed = Counter.builder(name + ".calls").tag("result", "executed").register(registry);
+        this.coalesced = Counter.builder(name + ".calls").tag("result", "coalesced").register(registry);
+    }
+
+    public V run(K key, Task<V> task) throws Exception {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+
+        if (existing != null) {
+            coalesced.increment();
+            return copyOf(await(existing));
+        }
+
+        executed.increment();
+        try {
+            V result = task.call();
+            flight.complete(copyOf(result));
+            return result;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private V copyOf(V value) {
+        return value == null ? null : copy.apply(value);
+    }
+
+    private V await(CompletableFuture<V> flight) throws Exception {
+        try {
+            return flight.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
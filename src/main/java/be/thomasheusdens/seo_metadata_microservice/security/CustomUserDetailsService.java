@@ -1,7 +1,7 @@
 package be.thomasheusdens.seo_metadata_microservice.security;
 
 import be.thomasheusdens.seo_metadata_microservice.user.User;
-import be.thomasheusdens.seo_metadata_microservice.user.UserRepository;
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -10,17 +10,17 @@ import org.springframework.stereotype.Service;
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
-    private final UserRepository userRepository;
+    private final UserService userService;
 
-    public CustomUserDetailsService(UserRepository repo) {
-        this.userRepository = repo;
+    public CustomUserDetailsService(UserService userService) {
+        this.userService = userService;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username)
             throws UsernameNotFoundException {
 
-        User user = userRepository.findByUsername(username)
+        User user = userService.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Not found"));
 
         return org.springframework.security.core.userdetails.User
@@ -0,0 +1,155 @@
+package be.thomasheusdens.seo_metadata_microservice.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-username and per-IP login attempt limits over a sliding window. Each key keeps the counts of the current and
+ * previous fixed window; the previous one is weighted by how much of it still overlaps the sliding window.
+ * Counting is lock-free (CAS on an immutable state). A window is retired before it is removed from the map, so an
+ * attempt that raced the removal retries on a fresh window instead of being counted on the one that is gone.
+ * <p>
+ * A username is limited twice: per username and IP, so failed attempts from one address soon stop there, and per
+ * username across all addresses, which bounds guessing one account's password from many addresses. The second limit
+ * is set above the per-IP one, so a single address can't lock the owner out; only a distributed attack reaches it. A
+ * successful login clears the username's count for that IP. An attempt is counted against every limit only when all
+ * of them allow it, so rejected attempts don't use up the IP's or the username's budget. The IP is
+ * {@code getRemoteAddr()}, which is the client address behind a trusted proxy with
+ * {@code server.forward-headers-strategy=native}.
+ */
+@Component
+public class LoginAttemptLimiter {
+
+    // State of a window that is being removed from the map
+    private static final Window RETIRED = new Window(Long.MIN_VALUE, 0, 0);
+
+    private final int maxPerUser;
+    private final int maxPerUsername;
+    private final int maxPerIp;
+    private final long windowMs;
+    private final ConcurrentHashMap<String, AtomicReference<Window>> windows = new ConcurrentHashMap<>();
+
+    public LoginAttemptLimiter(@Value("${spring.app.login.maxAttemptsPerUser:10}") int maxPerUser,
+                               @Value("${spring.app.login.maxAttemptsPerUsername:100}") int maxPerUsername,
+                               @Value("${spring.app.login.maxAttemptsPerIp:50}") int maxPerIp,
+                               @Value("${spring.app.login.windowSeconds:60}") long windowSeconds) {
+        this.maxPerUser = maxPerUser;
+        this.maxPerUsername = maxPerUsername;
+        this.maxPerIp = maxPerIp;
+        this.windowMs = windowSeconds * 1000;
+    }
+
+    /**
+     * Records an attempt and returns false, recording nothing, when the IP or the username is over a limit.
+     */
+    public boolean tryAcquire(String username, String ip) {
+        long now = System.currentTimeMillis();
+        long ipWindow = tryAcquire("ip:" + ip, maxPerIp, now);
+        if (ipWindow < 0 || username == null) {
+            return ipWindow >= 0;
+        }
+        long userWindow = tryAcquire(userKey(username, ip), maxPerUser, now);
+        if (userWindow < 0) {
+            undo("ip:" + ip, ipWindow);
+            return false;
+        }
+        if (tryAcquire("username:" + username, maxPerUsername, now) < 0) {
+            undo(userKey(username, ip), userWindow);
+            undo("ip:" + ip, ipWindow);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the username's attempts from {@code ip} after a successful login.
+     */
+    public void succeeded(String username, String ip) {
+        String key = userKey(username, ip);
+        AtomicReference<Window> ref = windows.get(key);
+        if (ref != null) {
+            ref.set(RETIRED);
+            windows.remove(key, ref);
+        }
+    }
+
+    public long windowSeconds() {
+        return windowMs / 1000;
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, AtomicReference<Window>> entry : windows.entrySet()) {
+            AtomicReference<Window> ref = entry.getValue();
+            Window current = ref.get();
+            if (current != RETIRED && now - current.start() >= 2 * windowMs && ref.compareAndSet(current, RETIRED)) {
+                windows.remove(entry.getKey(), ref);
+            }
+        }
+    }
+
+    private static String userKey(String username, String ip) {
+        return "user:" + ip + ":" + username;
+    }
+
+    // Returns the start of the window the attempt was counted in, or -1 when the key is over its limit
+    private long tryAcquire(String key, int limit, long now) {
+        while (true) {
+            AtomicReference<Window> ref = windows.computeIfAbsent(key, k -> new AtomicReference<>(new Window(now, 0, 0)));
+            Window current = ref.get();
+            if (current == RETIRED) {
+                // help the removal along, then start over on a fresh window
+                windows.remove(key, ref);
+                continue;
+            }
+            Window rolled = current.roll(now, windowMs);
+            double overlap = 1.0 - (double) (now - rolled.start()) / windowMs;
+            if (rolled.previous() * overlap + rolled.count() >= limit) {
+                return -1;
+            }
+            if (ref.compareAndSet(current, new Window(rolled.start(), rolled.previous(), rolled.count() + 1))) {
+                return rolled.start();
+            }
+        }
+    }
+
+    // Takes back an attempt counted in the window starting at windowStart, wherever that window is now
+    private void undo(String key, long windowStart) {
+        AtomicReference<Window> ref = windows.get(key);
+        if (ref == null) {
+            return;
+        }
+        while (true) {
+            Window current = ref.get();
+            Window undone;
+            if (current.start() == windowStart && current.count() > 0) {
+                undone = new Window(current.start(), current.previous(), current.count() - 1);
+            } else if (current.start() == windowStart + windowMs && current.previous() > 0) {
+                undone = new Window(current.start(), current.previous() - 1, current.count());
+            } else {
+                return;
+            }
+            if (ref.compareAndSet(current, undone)) {
+                return;
+            }
+        }
+    }
+
+    private record Window(long start, int previous, int count) {
+
+        Window roll(long now, long windowMs) {
+            long elapsed = now - start;
+            if (elapsed < windowMs) {
+                return this;
+            }
+            long windows = elapsed / windowMs;
+            return new Window(start + windows * windowMs, windows == 1 ? count : 0, 0);
+        }
+    }
+}
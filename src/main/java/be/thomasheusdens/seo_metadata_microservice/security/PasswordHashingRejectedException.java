@@ -0,0 +1,11 @@
+package be.thomasheusdens.seo_metadata_microservice.security;
+
+/**
+ * Thrown when the password hashing executor is saturated; callers answer with 429 Too Many Requests.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
@@ -5,9 +5,11 @@ import be.thomasheusdens.seo_metadata_microservice.auth.refresh.RefreshTokenServ
 import be.thomasheusdens.seo_metadata_microservice.jwt.AuthEntryPointJwt;
 import be.thomasheusdens.seo_metadata_microservice.jwt.AuthTokenFilter;
 import be.thomasheusdens.seo_metadata_microservice.jwt.JwtUtils;
-import be.thomasheusdens.seo_metadata_microservice.user.UserRepository;
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseCookie;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -23,6 +25,10 @@ import org.springframework.security.oauth2.client.userinfo.OAuth2UserService;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.DispatcherTypeRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
 
 import static org.springframework.security.config.Customizer.withDefaults;
 
@@ -32,20 +38,20 @@ import static org.springframework.security.config.Customizer.withDefaults;
 public class SecurityConfiguration {
 
     private final AuthEntryPointJwt unauthorizedHandler;
-    private final UserRepository userRepository;
+    private final UserService userService;
     private final RefreshTokenService refreshTokenService;
     private final JwtUtils jwtUtils;
     private final OAuth2UserService<OAuth2UserRequest, OAuth2User> customOAuth2UserService;
 
     public SecurityConfiguration(
             AuthEntryPointJwt unauthorizedHandler,
-            UserRepository userRepository,
+            UserService userService,
             RefreshTokenService refreshTokenService,
             JwtUtils jwtUtils,
             OAuth2UserService<OAuth2UserRequest, OAuth2User> customOAuth2UserService
     ) {
         this.unauthorizedHandler = unauthorizedHandler;
-        this.userRepository = userRepository;
+        this.userService = userService;
         this.refreshTokenService = refreshTokenService;
         this.jwtUtils = jwtUtils;
         this.customOAuth2UserService = customOAuth2UserService;
@@ -65,6 +71,13 @@ public class SecurityConfiguration {
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
                 .authorizeHttpRequests(auth -> auth
+                        // async dispatches that complete a streamed response were authorized on the original request
+                        .requestMatchers(new AndRequestMatcher(
+                                new DispatcherTypeRequestMatcher(DispatcherType.ASYNC),
+                                new OrRequestMatcher(
+                                        PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.POST, "/api/seo/crawl"),
+                                        PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.POST, "/api/seo/sitemap"))
+                        )).permitAll()
                         .requestMatchers(
                                 "/api/auth/login",
                                 "/api/auth/register",
@@ -111,7 +124,7 @@ public class SecurityConfiguration {
 
                             String email = ((OAuth2User) authentication.getPrincipal()).getAttribute("email");
 
-                            var user = userRepository.findByUsername(email)
+                            var user = userService.findByUsername(email)
                                     .orElseThrow(() -> new RuntimeException("User not found"));
 
                             UserDetails details = org.springframework.security.core.userdetails.User
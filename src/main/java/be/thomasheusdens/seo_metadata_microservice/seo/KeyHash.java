@@ -0,0 +1,25 @@
+package be.thomasheusdens.seo_metadata_microservice.seo;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Fixed-width index key for a normalized URL or a host: the hex SHA-256 of its UTF-8 bytes. The history and the trend
+ * rollups must hash the same way, so both use this.
+ */
+public final class KeyHash {
+
+    private KeyHash() {
+    }
+
+    public static String of(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
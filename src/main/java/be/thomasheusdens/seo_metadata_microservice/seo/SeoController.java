@@ -1,26 +1,75 @@
 package be.thomasheusdens.seo_metadata_microservice.seo;
 
+import be.thomasheusdens.seo_metadata_microservice.scraper.BatchExecutor;
+import be.thomasheusdens.seo_metadata_microservice.scraper.BatchItem;
+import be.thomasheusdens.seo_metadata_microservice.scraper.BatchRequest;
+import be.thomasheusdens.seo_metadata_microservice.scraper.ExtractionMode;
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataCache;
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataField;
 import be.thomasheusdens.seo_metadata_microservice.scraper.ScraperMetadata;
 import be.thomasheusdens.seo_metadata_microservice.scraper.ScraperService;
+import be.thomasheusdens.seo_metadata_microservice.seo.history.AnalysisResult;
+import be.thomasheusdens.seo_metadata_microservice.seo.history.AnalysisResultWriter;
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.security.Principal;
+import java.util.List;
+import java.util.Set;
+
 @RestController
 public class SeoController {
 
     private final ScraperService scraperService;
     private final SeoAnalysisService analysisService;
+    private final BatchExecutor batchExecutor;
+    private final AnalysisResultWriter historyWriter;
+    private final UserService userService;
 
-    public SeoController(ScraperService scraperService, SeoAnalysisService analysisService) {
+    public SeoController(ScraperService scraperService, SeoAnalysisService analysisService,
+                         BatchExecutor batchExecutor, AnalysisResultWriter historyWriter,
+                         UserService userService) {
         this.scraperService = scraperService;
         this.analysisService = analysisService;
+        this.batchExecutor = batchExecutor;
+        this.historyWriter = historyWriter;
+        this.userService = userService;
     }
 
     @PreAuthorize("isAuthenticated()")
     @GetMapping("/api/seo/analyze")
-    public SeoAnalysisResult analyze(@RequestParam String url) throws Exception {
+    public SeoAnalysisResult analyze(@RequestParam String url,
+                                     @RequestParam(defaultValue = "FULL") ExtractionMode mode,
+                                     @RequestParam(required = false) String fields,
+                                     @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false)
+                                     String cacheControl,
+                                     Principal principal) throws Exception {
+        Set<MetadataField> selected = MetadataField.parse(fields, mode);
+        return analyzeUrl(url, selected, MetadataCache.policy(cacheControl), userService.currentUserId(principal));
+    }
+
+    @PreAuthorize("isAuthenticated()")
+    @PostMapping("/api/seo/analyze/batch")
+    public List<BatchItem<SeoAnalysisResult>> analyzeBatch(@RequestBody BatchRequest request,
+                                                           @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false)
+                                                           String cacheControl,
+                                                           Principal principal) {
+        Set<MetadataField> selected = MetadataField.parse(request.getFields(), request.getMode());
+        MetadataCache.Policy cachePolicy = MetadataCache.policy(cacheControl);
+        Long userId = userService.currentUserId(principal);
+        return batchExecutor.run(request.getUrls(), request.getParallelism(),
+                url -> analyzeUrl(url, selected, cachePolicy, userId));
+    }
+
+    private SeoAnalysisResult analyzeUrl(String url, Set<MetadataField> selected, MetadataCache.Policy cachePolicy,
+                                         Long userId) throws Exception {
         if (url == null || url.equals("undefined") || url.isBlank()) {
             throw new IllegalArgumentException("Valid URL is required");
         }
@@ -29,7 +78,13 @@ public class SeoController {
             throw new IllegalArgumentException("URL must start with http:// or https://");
         }
 
-        ScraperMetadata metadata = scraperService.extractMetadata(url);
-        return analysisService.analyze(metadata);
+        if (url.length() > AnalysisResult.MAX_URL_LENGTH) {
+            throw new IllegalArgumentException("URL must be at most " + AnalysisResult.MAX_URL_LENGTH + " characters");
+        }
+
+        ScraperMetadata metadata = scraperService.extractMetadata(url, selected, cachePolicy);
+        SeoAnalysisResult result = analysisService.analyze(metadata, selected);
+        historyWriter.submit(userId, url, selected, metadata, result);
+        return result;
     }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.history;
+
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.Principal;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/seo/history")
+public class AnalysisHistoryController {
+
+    private final AnalysisHistoryService historyService;
+    private final UserService userService;
+
+    public AnalysisHistoryController(AnalysisHistoryService historyService, UserService userService) {
+        this.historyService = historyService;
+        this.userService = userService;
+    }
+
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping
+    public List<AnalysisSummary> history(@RequestParam String url,
+                                         @RequestParam(defaultValue = "20") int limit,
+                                         Principal principal) {
+        return historyService.history(userService.currentUserId(principal), url, limit);
+    }
+
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/latest")
+    public ResponseEntity<AnalysisReport> latest(@RequestParam String url, Principal principal) {
+        return ResponseEntity.of(historyService.latest(userService.currentUserId(principal), url));
+    }
+
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/{id}")
+    public ResponseEntity<AnalysisReport> report(@PathVariable Long id, Principal principal) {
+        return ResponseEntity.of(historyService.findById(userService.currentUserId(principal), id));
+    }
+}
@@ -0,0 +1,61 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.history;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataField;
+import be.thomasheusdens.seo_metadata_microservice.scraper.ScraperMetadata;
+import be.thomasheusdens.seo_metadata_microservice.scraper.UrlNormalizer;
+import be.thomasheusdens.seo_metadata_microservice.seo.KeyHash;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@Service
+public class AnalysisHistoryService {
+
+    private static final int MAX_HISTORY = 200;
+
+    private final AnalysisResultRepository analysisResultRepository;
+    private final SeoAnalysisService analysisService;
+    private final ObjectMapper objectMapper;
+
+    public AnalysisHistoryService(AnalysisResultRepository analysisResultRepository,
+                                  SeoAnalysisService analysisService,
+                                  ObjectMapper objectMapper) {
+        this.analysisResultRepository = analysisResultRepository;
+        this.analysisService = analysisService;
+        this.objectMapper = objectMapper;
+    }
+
+    public List<AnalysisSummary> history(Long userId, String url, int limit) {
+        return analysisResultRepository.findHistory(userId, hash(url), PageRequest.of(0, Math.clamp(limit, 1, MAX_HISTORY)));
+    }
+
+    public Optional<AnalysisReport> latest(Long userId, String url) {
+        return analysisResultRepository.findFirstByUserIdAndUrlHashOrderByAnalyzedAtDesc(userId, hash(url))
+                .map(this::report);
+    }
+
+    public Optional<AnalysisReport> findById(Long userId, Long id) {
+        return analysisResultRepository.findByIdAndUserId(id, userId).map(this::report);
+    }
+
+    // The report is rebuilt from the stored metadata with the current rules
+    private AnalysisReport report(AnalysisResult stored) {
+        try {
+            ScraperMetadata metadata = objectMapper.readValue(stored.getMetadata(), ScraperMetadata.class);
+            Set<MetadataField> fields = MetadataField.parse(stored.getFields(), null);
+            return new AnalysisReport(stored.getId(), stored.getAnalyzedAt(), analysisService.analyze(metadata, fields));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Stored analysis " + stored.getId() + " cannot be read", e);
+        }
+    }
+
+    private static String hash(String url) {
+        return KeyHash.of(UrlNormalizer.normalize(url));
+    }
+}
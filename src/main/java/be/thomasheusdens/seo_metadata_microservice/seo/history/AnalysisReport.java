@@ -0,0 +1,18 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.history;
+
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisResult;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * A stored analysis with its full report, rebuilt from the stored metadata.
+ */
+@Getter
+@AllArgsConstructor
+public class AnalysisReport {
+    private Long id;
+    private Instant analyzedAt;
+    private SeoAnalysisResult result;
+}
@@ -0,0 +1,62 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.history;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * One stored run of {@code /api/seo/analyze}. Rows are inserted by {@link AnalysisResultWriter} over JDBC; JPA is
+ * used for the schema and the reads. {@code metadata} holds the raw {@code ScraperMetadata} as JSON, so the full
+ * report can be rebuilt without scraping the page again.
+ */
+@Getter
+@Entity
+@Table(name = "analysis_results", indexes = {
+        // latest per URL and history per URL of a user: equality on the first two columns, newest first
+        @Index(name = "idx_analysis_results_user_url_time", columnList = "user_id, url_hash, analyzed_at")
+})
+public class AnalysisResult {
+
+    // Longest URL stored; longer ones are rejected before they are queued
+    public static final int MAX_URL_LENGTH = 2048;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = MAX_URL_LENGTH)
+    private String url;
+
+    // SHA-256 of the normalized URL: a fixed-width index key instead of the full URL
+    @Column(name = "url_hash", nullable = false, length = 64)
+    private String urlHash;
+
+    @Column(name = "analyzed_at", nullable = false)
+    private Instant analyzedAt;
+
+    // Comma-separated MetadataField names the analysis was run with
+    @Column(nullable = false)
+    private String fields;
+
+    @Column(name = "ok_count", nullable = false)
+    private short okCount;
+
+    @Column(name = "warning_count", nullable = false)
+    private short warningCount;
+
+    @Column(name = "critical_count", nullable = false)
+    private short criticalCount;
+
+    @Embedded
+    private CheckStatuses statuses;
+
+    @Lob
+    @Column(nullable = false)
+    private String metadata;
+
+    public AnalysisResult() {}
+}
@@ -0,0 +1,24 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.history;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AnalysisResultRepository extends JpaRepository<AnalysisResult, Long> {
+
+    // Summaries only: the metadata LOB isn't read for a history listing
+    @Query("SELECT new be.thomasheusdens.seo_metadata_microservice.seo.history.AnalysisSummary("
+            + "r.id, r.url, r.analyzedAt, r.okCount, r.warningCount, r.criticalCount, r.statuses) "
+            + "FROM AnalysisResult r WHERE r.userId = :userId AND r.urlHash = :urlHash ORDER BY r.analyzedAt DESC")
+    List<AnalysisSummary> findHistory(@Param("userId") Long userId, @Param("urlHash") String urlHash, Pageable page);
+
+    Optional<AnalysisResult> findFirstByUserIdAndUrlHashOrderByAnalyzedAtDesc(Long userId, String urlHash);
+
+    Optional<AnalysisResult> findByIdAndUserId(Long id, Long userId);
+}
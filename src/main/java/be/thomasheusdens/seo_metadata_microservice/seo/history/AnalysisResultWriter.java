@@ -0,0 +1,287 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.history;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataField;
+import be.thomasheusdens.seo_metadata_microservice.scraper.ScraperMetadata;
+import be.thomasheusdens.seo_metadata_microservice.scraper.UrlNormalizer;
+import be.thomasheusdens.seo_metadata_microservice.seo.KeyHash;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisResult;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisService;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoCheck;
+import be.thomasheusdens.seo_metadata_microservice.seo.trends.TrendRollupUpdater;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Persists analysis results to {@code analysis_results} off the request thread. {@link #submit} only enqueues; a
+ * scheduled flush serializes the metadata, derives the status columns and inserts the rows as JDBC batches, then
+ * updates the trend rollups once the rows are committed. Only analyses of every group are rolled up: a projected run
+ * ({@code fields=}) emits a fraction of the checks and would skew the averages.
+ * The queue is bounded: when the database falls behind, results are dropped (and counted) instead of piling up.
+ * A failed batch is retried row by row, so one bad row doesn't take the others with it; while the database is down,
+ * the rows stay queued for the next flush.
+ */
+@Component
+public class AnalysisResultWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisResultWriter.class);
+
+    private static final int MAX_FLUSH_BATCH = 500;
+
+    private static final String INSERT_SQL = "INSERT INTO analysis_results (user_id, url, url_hash, analyzed_at, fields, "
+            + "ok_count, warning_count, critical_count, metadata, "
+            + CheckStatuses.GROUPS.stream().map(CheckStatuses::column).collect(Collectors.joining(", "))
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?"
+            + ", ?".repeat(CheckStatuses.GROUPS.size()) + ")";
+
+    record Pending(Long userId, String url, Instant analyzedAt, Set<MetadataField> fields,
+                   ScraperMetadata metadata, SeoAnalysisResult result) {
+    }
+
+    // sample is null for an analysis of only some groups: it isn't comparable with the others, so not rolled up
+    private record Prepared(String url, Object[] values, TrendRollupUpdater.Sample sample) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TrendRollupUpdater trendRollupUpdater;
+    private final ObjectMapper objectMapper;
+    private final ArrayBlockingQueue<Pending> pending;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Rows a flush could not store while the database was unavailable; only touched under flushLock
+    private final List<Prepared> retry = new ArrayList<>();
+    private final Counter dropped;
+    private final Counter failed;
+    private final Counter rollupFailed;
+
+    public AnalysisResultWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                TrendRollupUpdater trendRollupUpdater, ObjectMapper objectMapper,
+                                @Value("${spring.app.analysisHistory.queueCapacity:10000}") int queueCapacity,
+                                MeterRegistry registry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.trendRollupUpdater = trendRollupUpdater;
+        this.objectMapper = objectMapper;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("seo.history.writer.queue", pending, ArrayBlockingQueue::size)
+                .description("Analysis results waiting to be persisted")
+                .register(registry);
+        this.dropped = Counter.builder("seo.history.writer.dropped")
+                .description("Analysis results not persisted because the queue was full")
+                .register(registry);
+        this.failed = Counter.builder("seo.history.writer.failed")
+                .description("Analysis results that could never be persisted")
+                .register(registry);
+        this.rollupFailed = Counter.builder("seo.history.writer.rollupFailed")
+                .description("Stored analysis results whose trend rollups could not be updated")
+                .register(registry);
+    }
+
+    /**
+     * Queues a result for persistence without blocking. Returns false when the queue is full and the result is dropped.
+     */
+    public boolean submit(Long userId, String url, Set<MetadataField> fields, ScraperMetadata metadata,
+                          SeoAnalysisResult result) {
+        boolean queued = pending.offer(new Pending(userId, url, Instant.now(), fields, metadata, result));
+        if (!queued) {
+            dropped.increment();
+        }
+        return queued;
+    }
+
+    @Scheduled(fixedDelayString = "${spring.app.analysisHistory.flushMs:1000}")
+    public void flush() {
+        if (flushLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>();
+        while (true) {
+            // rows kept back by a failed flush go first, so history stays in submission order
+            List<Prepared> rows = new ArrayList<>(retry);
+            retry.clear();
+            pending.drainTo(batch, MAX_FLUSH_BATCH - rows.size());
+            for (Pending result : batch) {
+                Prepared row = prepare(result);
+                if (row != null) {
+                    rows.add(row);
+                }
+            }
+            batch.clear();
+            if (rows.isEmpty()) {
+                return;
+            }
+            List<Prepared> stored = insert(rows);
+            if (!stored.isEmpty()) {
+                updateRollups(stored.stream().map(Prepared::sample).filter(Objects::nonNull).toList());
+            }
+            if (!retry.isEmpty()) {
+                // the database is unavailable: leave the rest queued for the next flush
+                return;
+            }
+        }
+    }
+
+    // Null when the result can never be stored
+    private Prepared prepare(Pending result) {
+        String url = UrlNormalizer.normalize(result.url());
+        if (url.length() > AnalysisResult.MAX_URL_LENGTH) {
+            failed.increment();
+            logger.error("Not persisting analysis of a URL longer than {} characters", AnalysisResult.MAX_URL_LENGTH);
+            return null;
+        }
+        try {
+            short ok = count(result.result(), "OK");
+            short warning = count(result.result(), "WARNING");
+            short critical = count(result.result(), "CRITICAL");
+            TrendRollupUpdater.Sample sample = result.fields().containsAll(MetadataField.all())
+                    ? new TrendRollupUpdater.Sample(result.userId(), url, result.analyzedAt(), ok, warning, critical)
+                    : null;
+            return new Prepared(url, row(result, url, ok, warning, critical), sample);
+        } catch (JsonProcessingException e) {
+            failed.increment();
+            logger.error("Could not serialize analysis of {}: {}", result.url(), e.getMessage());
+            return null;
+        }
+    }
+
+    // Returns the rows that were stored; rows that may succeed later are moved to retry
+    private List<Prepared> insert(List<Prepared> rows) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL,
+                    rows.stream().map(Prepared::values).toList()));
+            return rows;
+        } catch (DataAccessException | TransactionException e) {
+            logger.warn("Could not persist {} analysis results as a batch, retrying one by one: {}", rows.size(),
+                    e.getMessage());
+            return insertOneByOne(rows);
+        }
+    }
+
+    /*
+     * A row that fails while the table still answers is dropped: the database rejected that row. When the table
+     * doesn't answer either, the database is taken to be down and every row from that one on is kept for the next flush.
+     */
+    private List<Prepared> insertOneByOne(List<Prepared> rows) {
+        List<Prepared> stored = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Prepared row = rows.get(i);
+            try {
+                jdbcTemplate.update(INSERT_SQL, row.values());
+                stored.add(row);
+            } catch (DataAccessException e) {
+                if (!(e instanceof DataIntegrityViolationException) && !reachable()) {
+                    retry.addAll(rows.subList(i, rows.size()));
+                    logger.error("Could not persist analysis results, keeping {} for the next flush: {}",
+                            retry.size(), e.getMessage());
+                    return stored;
+                }
+                drop(row, e);
+            }
+        }
+        return stored;
+    }
+
+    private boolean reachable() {
+        try {
+            jdbcTemplate.queryForList("SELECT id FROM analysis_results WHERE 1 = 0", Long.class);
+            return true;
+        } catch (DataAccessException e) {
+            return false;
+        }
+    }
+
+    private void drop(Prepared row, DataAccessException e) {
+        failed.increment();
+        logger.error("Could not persist analysis of {}: {}", row.url(), e.getMessage());
+    }
+
+    // Runs after the insert committed: losing a rollup update only skews the trends, never the stored history
+    private void updateRollups(List<TrendRollupUpdater.Sample> samples) {
+        try {
+            trendRollupUpdater.apply(samples);
+        } catch (DataAccessException | TransactionException e) {
+            rollupFailed.increment(samples.size());
+            logger.error("Could not update the trend rollups of {} analysis results: {}", samples.size(),
+                    e.getMessage());
+        }
+    }
+
+    private Object[] row(Pending result, String url, short ok, short warning, short critical)
+            throws JsonProcessingException {
+        List<Object> row = new ArrayList<>(9 + CheckStatuses.GROUPS.size());
+        row.add(result.userId());
+        row.add(url);
+        row.add(KeyHash.of(url));
+        row.add(Timestamp.from(result.analyzedAt()));
+        row.add(result.fields().stream().map(Enum::name).collect(Collectors.joining(",")));
+        row.add(ok);
+        row.add(warning);
+        row.add(critical);
+        row.add(objectMapper.writeValueAsString(result.metadata()));
+        Map<MetadataField, Byte> worst = worstStatuses(result.result());
+        for (MetadataField group : CheckStatuses.GROUPS) {
+            row.add(result.fields().contains(group) ? worst.get(group) : null);
+        }
+        return row.toArray();
+    }
+
+    // One pass over the checks of the submitted result: no rule is evaluated again
+    private static Map<MetadataField, Byte> worstStatuses(SeoAnalysisResult result) {
+        Map<MetadataField, Byte> worst = new EnumMap<>(MetadataField.class);
+        for (SeoCheck check : result.getChecks()) {
+            MetadataField group = SeoAnalysisService.groupOf(check);
+            Byte code = CheckStatuses.code(check.getStatus());
+            if (group != null && code != null) {
+                worst.merge(group, code, (a, b) -> a >= b ? a : b);
+            }
+        }
+        return worst;
+    }
+
+    private static short count(SeoAnalysisResult result, String status) {
+        return (short) result.getChecks().stream().filter(check -> status.equals(check.getStatus())).count();
+    }
+}
@@ -0,0 +1,32 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.history;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataField;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One entry of the analysis history of a URL: counts and worst status per metadata group.
+ */
+@Getter
+public class AnalysisSummary {
+    private final Long id;
+    private final String url;
+    private final Instant analyzedAt;
+    private final int okCount;
+    private final int warningCount;
+    private final int criticalCount;
+    private final Map<MetadataField, String> statuses;
+
+    public AnalysisSummary(Long id, String url, Instant analyzedAt, short okCount, short warningCount,
+                           short criticalCount, CheckStatuses statuses) {
+        this.id = id;
+        this.url = url;
+        this.analyzedAt = analyzedAt;
+        this.okCount = okCount;
+        this.warningCount = warningCount;
+        this.criticalCount = criticalCount;
+        this.statuses = statuses == null ? Map.of() : statuses.asMap();
+    }
+}
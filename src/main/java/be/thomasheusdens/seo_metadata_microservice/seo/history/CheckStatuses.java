@@ -0,0 +1,81 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.history;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataField;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.Getter;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Worst check status per metadata group of one analysis, one TINYINT column per group:
+ * 0 = OK, 1 = WARNING, 2 = CRITICAL, null = group not analysed.
+ */
+@Getter
+@Embeddable
+public class CheckStatuses {
+
+    static final List<String> STATUSES = List.of("OK", "WARNING", "CRITICAL");
+
+    // Groups that have rules in SeoAnalysisService (KEYWORDS has none), in column order
+    static final List<MetadataField> GROUPS = List.of(
+            MetadataField.TITLE, MetadataField.DESCRIPTION, MetadataField.CANONICAL, MetadataField.OG,
+            MetadataField.TWITTER, MetadataField.ICONS, MetadataField.HREFLANG, MetadataField.ROBOTS,
+            MetadataField.VIEWPORT, MetadataField.H1, MetadataField.JSONLD, MetadataField.LINKS,
+            MetadataField.IMAGES, MetadataField.CONTENT);
+
+    @Column(name = "title_status")
+    private Byte title;
+    @Column(name = "description_status")
+    private Byte description;
+    @Column(name = "canonical_status")
+    private Byte canonical;
+    @Column(name = "og_status")
+    private Byte og;
+    @Column(name = "twitter_status")
+    private Byte twitter;
+    @Column(name = "icons_status")
+    private Byte icons;
+    @Column(name = "hreflang_status")
+    private Byte hreflang;
+    @Column(name = "robots_status")
+    private Byte robots;
+    @Column(name = "viewport_status")
+    private Byte viewport;
+    @Column(name = "h1_status")
+    private Byte h1;
+    @Column(name = "jsonld_status")
+    private Byte jsonld;
+    @Column(name = "links_status")
+    private Byte links;
+    @Column(name = "images_status")
+    private Byte images;
+    @Column(name = "content_status")
+    private Byte content;
+
+    public CheckStatuses() {}
+
+    static String column(MetadataField group) {
+        return group.name().toLowerCase(Locale.ROOT) + "_status";
+    }
+
+    static Byte code(String status) {
+        int index = STATUSES.indexOf(status);
+        return index < 0 ? null : (byte) index;
+    }
+
+    public Map<MetadataField, String> asMap() {
+        Byte[] codes = {title, description, canonical, og, twitter, icons, hreflang, robots, viewport, h1, jsonld,
+                links, images, content};
+        Map<MetadataField, String> statuses = new EnumMap<>(MetadataField.class);
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] != null) {
+                statuses.put(GROUPS.get(i), STATUSES.get(codes[i]));
+            }
+        }
+        return statuses;
+    }
+}
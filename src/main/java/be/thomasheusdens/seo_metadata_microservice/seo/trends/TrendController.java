@@ -0,0 +1,39 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.trends;
+
+import be.thomasheusdens.seo_metadata_microservice.auth.MessageResponse;
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.Principal;
+
+@RestController
+public class TrendController {
+
+    private final TrendService trendService;
+    private final UserService userService;
+
+    public TrendController(TrendService trendService, UserService userService) {
+        this.trendService = trendService;
+        this.userService = userService;
+    }
+
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/api/seo/trends")
+    public ResponseEntity<?> trends(@RequestParam(required = false) String url,
+                                    @RequestParam(required = false) String host,
+                                    @RequestParam(defaultValue = "DAY") TrendGranularity granularity,
+                                    @RequestParam(defaultValue = "90") int days,
+                                    Principal principal) {
+        if ((url == null) == (host == null)) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Pass either url or host"));
+        }
+
+        Long userId = userService.currentUserId(principal);
+        TrendScope scope = url != null ? TrendScope.URL : TrendScope.HOST;
+        return ResponseEntity.ok(trendService.trend(userId, scope, url != null ? url : host, granularity, days));
+    }
+}
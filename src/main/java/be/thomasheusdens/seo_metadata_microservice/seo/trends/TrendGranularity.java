@@ -0,0 +1,23 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.trends;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Width of one rollup bucket. Buckets are UTC days, weeks start on Monday.
+ */
+public enum TrendGranularity {
+    DAY,
+    WEEK;
+
+    public LocalDate periodStart(Instant instant) {
+        return periodStart(LocalDate.ofInstant(instant, ZoneOffset.UTC));
+    }
+
+    public LocalDate periodStart(LocalDate date) {
+        return this == DAY ? date : date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+}
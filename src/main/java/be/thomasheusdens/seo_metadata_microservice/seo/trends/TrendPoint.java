@@ -0,0 +1,33 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.trends;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * One bucket of a trend: totals over the analyses run in that period and the averages per analysis.
+ */
+@Getter
+public class TrendPoint {
+    private final LocalDate periodStart;
+    private final int analyses;
+    private final long okCount;
+    private final long warningCount;
+    private final long criticalCount;
+
+    public TrendPoint(LocalDate periodStart, int analyses, long okCount, long warningCount, long criticalCount) {
+        this.periodStart = periodStart;
+        this.analyses = analyses;
+        this.okCount = okCount;
+        this.warningCount = warningCount;
+        this.criticalCount = criticalCount;
+    }
+
+    public double getAverageCritical() {
+        return analyses == 0 ? 0 : (double) criticalCount / analyses;
+    }
+
+    public double getAverageWarning() {
+        return analyses == 0 ? 0 : (double) warningCount / analyses;
+    }
+}
@@ -0,0 +1,56 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.trends;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Sums of the analyses of one URL or host in one day or week, kept up to date by {@link TrendRollupUpdater} as
+ * analyses are stored. A 90-day trend reads at most 90 rows, however many analyses were run.
+ */
+@Getter
+@Entity
+@Table(name = "analysis_rollups", uniqueConstraints = {
+        // also the index of the trend query: equality on the first four columns, range on period_start
+        @UniqueConstraint(name = "uk_analysis_rollups_bucket",
+                columnNames = {"user_id", "scope", "key_hash", "granularity", "period_start"})
+})
+public class TrendRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private TrendScope scope;
+
+    // SHA-256 of the normalized URL or of the host
+    @Column(name = "key_hash", nullable = false, length = 64)
+    private String keyHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private TrendGranularity granularity;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(nullable = false)
+    private int analyses;
+
+    @Column(name = "ok_count", nullable = false)
+    private long okCount;
+
+    @Column(name = "warning_count", nullable = false)
+    private long warningCount;
+
+    @Column(name = "critical_count", nullable = false)
+    private long criticalCount;
+
+    public TrendRollup() {}
+}
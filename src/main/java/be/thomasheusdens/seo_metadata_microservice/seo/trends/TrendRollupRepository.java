@@ -0,0 +1,24 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.trends;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface TrendRollupRepository extends JpaRepository<TrendRollup, Long> {
+
+    // Range scan on uk_analysis_rollups_bucket
+    @Query("SELECT new be.thomasheusdens.seo_metadata_microservice.seo.trends.TrendPoint("
+            + "r.periodStart, r.analyses, r.okCount, r.warningCount, r.criticalCount) "
+            + "FROM TrendRollup r WHERE r.userId = :userId AND r.scope = :scope AND r.keyHash = :keyHash "
+            + "AND r.granularity = :granularity AND r.periodStart >= :from ORDER BY r.periodStart")
+    List<TrendPoint> findTrend(@Param("userId") Long userId,
+                               @Param("scope") TrendScope scope,
+                               @Param("keyHash") String keyHash,
+                               @Param("granularity") TrendGranularity granularity,
+                               @Param("from") LocalDate from);
+}
@@ -0,0 +1,126 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.trends;
+
+import be.thomasheusdens.seo_metadata_microservice.seo.KeyHash;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Folds newly stored analyses into the day and week rollups of their URL and host. A batch of analyses is first
+ * summed per bucket in memory, then applied as one JDBC batch of updates plus one batch of inserts for the buckets
+ * that did not exist yet, so a flush costs one statement per touched bucket instead of one per analysis.
+ * Plain UPDATE and INSERT keep it portable across MySQL and H2. The rollups get their own transaction: a failure here
+ * never rolls back the analyses they summarize.
+ */
+@Component
+public class TrendRollupUpdater {
+
+    private static final String UPDATE_SQL = "UPDATE analysis_rollups SET analyses = analyses + ?, "
+            + "ok_count = ok_count + ?, warning_count = warning_count + ?, critical_count = critical_count + ? "
+            + "WHERE user_id = ? AND scope = ? AND key_hash = ? AND granularity = ? AND period_start = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO analysis_rollups "
+            + "(user_id, scope, key_hash, granularity, period_start, analyses, ok_count, warning_count, critical_count) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Same lock order on every node: buckets are upserted sorted by key
+    private static final Comparator<Bucket> BUCKET_ORDER = Comparator.comparing(Bucket::userId)
+            .thenComparing(Bucket::scope)
+            .thenComparing(Bucket::keyHash)
+            .thenComparing(Bucket::granularity)
+            .thenComparing(Bucket::periodStart);
+
+    public record Sample(Long userId, String normalizedUrl, Instant analyzedAt, int okCount, int warningCount,
+                         int criticalCount) {
+    }
+
+    private record Bucket(Long userId, TrendScope scope, String keyHash, TrendGranularity granularity,
+                          LocalDate periodStart) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public TrendRollupUpdater(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Adds {@code samples} to their buckets. Callers only pass analyses of every metadata group, so the check counts
+     * of one bucket stay comparable.
+     */
+    public void apply(List<Sample> samples) {
+        Map<Bucket, long[]> totals = new TreeMap<>(BUCKET_ORDER);
+        for (Sample sample : samples) {
+            String host = host(sample.normalizedUrl());
+            for (TrendGranularity granularity : TrendGranularity.values()) {
+                LocalDate periodStart = granularity.periodStart(sample.analyzedAt());
+                add(totals, new Bucket(sample.userId(), TrendScope.URL, KeyHash.of(sample.normalizedUrl()), granularity, periodStart), sample);
+                if (host != null) {
+                    add(totals, new Bucket(sample.userId(), TrendScope.HOST, KeyHash.of(host), granularity, periodStart), sample);
+                }
+            }
+        }
+        if (totals.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> upsert(totals));
+        } catch (DuplicateKeyException e) {
+            // another node inserted one of the new buckets first; the retry finds it and updates it instead
+            transactionTemplate.executeWithoutResult(status -> upsert(totals));
+        }
+    }
+
+    private void upsert(Map<Bucket, long[]> totals) {
+        List<Object[]> updates = new ArrayList<>(totals.size());
+        totals.forEach((bucket, sums) -> updates.add(new Object[]{
+                sums[0], sums[1], sums[2], sums[3],
+                bucket.userId(), bucket.scope().name(), bucket.keyHash(), bucket.granularity().name(),
+                Date.valueOf(bucket.periodStart())
+        }));
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                Object[] update = updates.get(i);
+                inserts.add(new Object[]{update[4], update[5], update[6], update[7], update[8],
+                        update[0], update[1], update[2], update[3]});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        }
+    }
+
+    private static void add(Map<Bucket, long[]> totals, Bucket bucket, Sample sample) {
+        long[] sums = totals.computeIfAbsent(bucket, b -> new long[4]);
+        sums[0]++;
+        sums[1] += sample.okCount();
+        sums[2] += sample.warningCount();
+        sums[3] += sample.criticalCount();
+    }
+
+    static String host(String normalizedUrl) {
+        try {
+            return URI.create(normalizedUrl).getHost();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.trends;
+
+/**
+ * What a rollup row aggregates: the analyses of one normalized URL, or of every URL of one host.
+ */
+public enum TrendScope {
+    URL,
+    HOST
+}
@@ -0,0 +1,35 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.trends;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.UrlNormalizer;
+import be.thomasheusdens.seo_metadata_microservice.seo.KeyHash;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+
+@Service
+public class TrendService {
+
+    private static final int MAX_DAYS = 730;
+
+    private final TrendRollupRepository trendRollupRepository;
+
+    public TrendService(TrendRollupRepository trendRollupRepository) {
+        this.trendRollupRepository = trendRollupRepository;
+    }
+
+    /**
+     * Rollup buckets of the last {@code days} days for a URL or a host, oldest first. Buckets without analyses are
+     * left out.
+     */
+    public List<TrendPoint> trend(Long userId, TrendScope scope, String key, TrendGranularity granularity, int days) {
+        String normalized = scope == TrendScope.URL
+                ? UrlNormalizer.normalize(key)
+                : key.trim().toLowerCase(Locale.ROOT);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate from = granularity.periodStart(today.minusDays(Math.clamp(days, 1, MAX_DAYS) - 1L));
+        return trendRollupRepository.findTrend(userId, scope, KeyHash.of(normalized), granularity, from);
+    }
+}
@@ -0,0 +1,61 @@
+package be.thomasheusdens.seo_metadata_microservice.sitemap;
+
+import be.thomasheusdens.seo_metadata_microservice.crawler.CrawlSlots;
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataField;
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.security.Principal;
+import java.util.Optional;
+import java.util.Set;
+
+@RestController
+public class SitemapController {
+
+    private final SitemapService sitemapService;
+    private final UserService userService;
+    private final CrawlSlots crawlSlots;
+
+    public SitemapController(SitemapService sitemapService, UserService userService, CrawlSlots crawlSlots) {
+        this.sitemapService = sitemapService;
+        this.userService = userService;
+        this.crawlSlots = crawlSlots;
+    }
+
+    // Streams a "page" event per analysed URL and a final "summary" event; the request thread is released right away.
+    // A sitemap run takes a crawl slot: answers 429 when the user or the server runs too many crawls and sitemaps.
+    @PreAuthorize("isAuthenticated()")
+    @PostMapping(value = "/api/seo/sitemap", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> analyzeSitemap(@RequestBody SitemapRequest request, Principal principal) {
+        String sitemapUrl = sitemapService.sitemapUrl(request.getUrl());
+        int maxUrls = sitemapService.maxUrls(request.getMaxUrls());
+        Set<MetadataField> fields = MetadataField.parse(request.getFields(), request.getMode());
+        Long userId = userService.currentUserId(principal);
+        Optional<CrawlSlots.Slot> acquired = crawlSlots.tryAcquire(principal == null ? "" : principal.getName());
+        if (acquired.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+        CrawlSlots.Slot slot = acquired.get();
+
+        SseEmitter emitter = new SseEmitter(0L);
+        Thread.ofVirtual().name("sitemap-" + sitemapUrl).start(() -> {
+            try (slot) {
+                SitemapSummary summary = sitemapService.analyze(sitemapUrl, fields, maxUrls, request.getParallelism(),
+                        userId,
+                        item -> emitter.send(SseEmitter.event().name("page").data(item, MediaType.APPLICATION_JSON)));
+                emitter.send(SseEmitter.event().name("summary").data(summary, MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return ResponseEntity.ok(emitter);
+    }
+}
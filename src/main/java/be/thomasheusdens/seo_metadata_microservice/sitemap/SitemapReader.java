@@ -0,0 +1,138 @@
+package be.thomasheusdens.seo_metadata_microservice.sitemap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming sitemap parser: reads a {@code <urlset>} or {@code <sitemapindex>} with StAX, one event at a time, and
+ * hands out every {@code <loc>} as soon as it is read, so memory use doesn't depend on the size of the sitemap.
+ * Gzipped sitemaps ({@code .xml.gz}) are recognised by their magic bytes, whatever the URL or headers say.
+ * DTDs and external entities are disabled.
+ */
+final class SitemapReader {
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    interface Handler {
+        /**
+         * A page of a {@code <urlset>}; return false to stop reading.
+         */
+        boolean url(String loc);
+
+        /**
+         * A child sitemap of a {@code <sitemapindex>}.
+         */
+        void sitemap(String loc);
+    }
+
+    private SitemapReader() {
+    }
+
+    /**
+     * @param maxBytes limit on the XML after decompression, so a small gzip can't expand without bound
+     */
+    static void read(InputStream body, long maxBytes, Handler handler) throws IOException, XMLStreamException {
+        InputStream in = new SizeLimitedInputStream(gunzipIfNeeded(body), maxBytes);
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+        try {
+            boolean index = false;
+            int depth = 0;
+            int entryDepth = -1;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth-- == entryDepth) {
+                        entryDepth = -1;
+                    }
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                depth++;
+                String name = reader.getLocalName();
+
+                if (depth == 1) {
+                    if (!name.equals("urlset") && !name.equals("sitemapindex")) {
+                        throw new XMLStreamException("Not a sitemap: root element <" + name + ">");
+                    }
+                    index = name.equals("sitemapindex");
+                } else if (depth == 2 && name.equals(index ? "sitemap" : "url")) {
+                    entryDepth = depth;
+                } else if (depth == entryDepth + 1 && entryDepth != -1 && name.equals("loc")) {
+                    // only the entry's own <loc>, not e.g. <image:loc> nested deeper inside a <url>
+                    String loc = reader.getElementText().trim();
+                    depth--;
+                    if (loc.isEmpty()) {
+                        continue;
+                    }
+                    if (index) {
+                        handler.sitemap(loc);
+                    } else if (!handler.url(loc)) {
+                        return;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static InputStream gunzipIfNeeded(InputStream body) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(body, 64 * 1024);
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        return first == 0x1f && second == 0x8b ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+
+    // Fails instead of silently truncating: a cut-off sitemap would otherwise end in an XML error anyway
+    private static class SizeLimitedInputStream extends FilterInputStream {
+        private long remaining;
+        private final long maxBytes;
+
+        SizeLimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+            this.remaining = maxBytes <= 0 ? Long.MAX_VALUE : maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) {
+                consumed(n);
+            }
+            return n;
+        }
+
+        private void consumed(long n) throws IOException {
+            remaining -= n;
+            if (remaining < 0) {
+                throw new IOException("Sitemap is larger than " + maxBytes + " bytes");
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package be.thomasheusdens.seo_metadata_microservice.sitemap;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.ExtractionMode;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class SitemapRequest {
+    private String url;
+    private String fields;
+    private ExtractionMode mode = ExtractionMode.FULL;
+    private Integer parallelism;
+    private Integer maxUrls;
+}
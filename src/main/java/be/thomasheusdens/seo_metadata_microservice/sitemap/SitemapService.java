@@ -0,0 +1,297 @@
+package be.thomasheusdens.seo_metadata_microservice.sitemap;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.BatchExecutor;
+import be.thomasheusdens.seo_metadata_microservice.scraper.FetchedPage;
+import be.thomasheusdens.seo_metadata_microservice.scraper.HostScheduler;
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataField;
+import be.thomasheusdens.seo_metadata_microservice.scraper.PageFetcher;
+import be.thomasheusdens.seo_metadata_microservice.scraper.ScraperMetadata;
+import be.thomasheusdens.seo_metadata_microservice.scraper.ScraperService;
+import be.thomasheusdens.seo_metadata_microservice.scraper.UrlNormalizer;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisResult;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisService;
+import be.thomasheusdens.seo_metadata_microservice.seo.history.AnalysisResultWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Analyses every page listed in a site's sitemap. Sitemaps (and the child sitemaps of a sitemap index) are read one
+ * after the other with {@link SitemapReader}. The page URLs of a sitemap are spooled to a temp file, bounded by
+ * {@code maxUrls}, and the connection is closed before they are fed to a streamed batch
+ * ({@link BatchExecutor#runStreaming}), so a sitemap origin is never held open while its pages are analysed. Neither
+ * the sitemap nor its URL list is held in memory.
+ * <p>
+ * Only URLs and child sitemaps on the host of the requested sitemap are followed, as the sitemap protocol requires.
+ */
+@Service
+public class SitemapService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SitemapService.class);
+
+    private static final int MAX_REPORTED_FAILURES = 100;
+    // longest <loc> the sitemap protocol allows
+    private static final int MAX_LOC_LENGTH = 2048;
+
+    private final PageFetcher pageFetcher;
+    private final HostScheduler hostScheduler;
+    private final BatchExecutor batchExecutor;
+    private final ScraperService scraperService;
+    private final SeoAnalysisService analysisService;
+    private final AnalysisResultWriter historyWriter;
+    private final int defaultMaxUrls;
+    private final int urlLimit;
+    private final int maxSitemaps;
+    private final long maxBytes;
+    private final Duration readTimeout;
+
+    public SitemapService(PageFetcher pageFetcher, HostScheduler hostScheduler, BatchExecutor batchExecutor,
+                          ScraperService scraperService, SeoAnalysisService analysisService,
+                          AnalysisResultWriter historyWriter,
+                          @Value("${spring.app.sitemap.maxUrls:50000}") int defaultMaxUrls,
+                          @Value("${spring.app.sitemap.urlLimit:1000000}") int urlLimit,
+                          @Value("${spring.app.sitemap.maxSitemaps:1000}") int maxSitemaps,
+                          @Value("${spring.app.sitemap.maxBytes:1073741824}") long maxBytes,
+                          @Value("${spring.app.sitemap.readTimeoutMs:300000}") long readTimeoutMs) {
+        this.pageFetcher = pageFetcher;
+        this.hostScheduler = hostScheduler;
+        this.batchExecutor = batchExecutor;
+        this.scraperService = scraperService;
+        this.analysisService = analysisService;
+        this.historyWriter = historyWriter;
+        this.defaultMaxUrls = defaultMaxUrls;
+        this.urlLimit = urlLimit;
+        this.maxSitemaps = maxSitemaps;
+        this.maxBytes = maxBytes;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+    }
+
+    /**
+     * The sitemap to read for {@code url}: the URL itself when it points at an XML file, otherwise the site's
+     * {@code /sitemap.xml}.
+     */
+    public String sitemapUrl(String url) {
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("Valid URL is required");
+        }
+        if (!url.startsWith("http://") && !url.startsWith("https://")) {
+            throw new IllegalArgumentException("URL must start with http:// or https://");
+        }
+        URI uri;
+        try {
+            uri = URI.create(url.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid URL: " + url);
+        }
+        if (uri.getHost() == null) {
+            throw new IllegalArgumentException("URL has no host");
+        }
+        String path = uri.getPath() == null ? "" : uri.getPath().toLowerCase(Locale.ROOT);
+        if (path.endsWith(".xml") || path.endsWith(".xml.gz")) {
+            return url.trim();
+        }
+        return uri.resolve("/sitemap.xml").toString();
+    }
+
+    public int maxUrls(Integer requested) {
+        int maxUrls = requested == null ? defaultMaxUrls : requested;
+        if (maxUrls < 1 || maxUrls > urlLimit) {
+            throw new IllegalArgumentException("maxUrls must be between 1 and " + urlLimit);
+        }
+        return maxUrls;
+    }
+
+    public SitemapSummary analyze(String sitemapUrl, Set<MetadataField> fields, int maxUrls, Integer parallelism,
+                                  Long userId, BatchExecutor.ItemListener<SeoAnalysisResult> listener)
+            throws Exception {
+        long start = System.nanoTime();
+        Walk walk = new Walk(sitemapUrl, maxUrls);
+        LongAdder analyzed = new LongAdder();
+        LongAdder failed = new LongAdder();
+
+        boolean completed = batchExecutor.runStreaming(parallelism, walk::read,
+                url -> analyzeUrl(url, fields, userId),
+                item -> {
+                    (item.getError() == null ? analyzed : failed).increment();
+                    listener.onItem(item);
+                });
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Analysed {} URLs from {} sitemaps of {} in {} ms ({} failed, {} sitemaps failed)",
+                analyzed.sum() + failed.sum(), walk.sitemapsRead, sitemapUrl, durationMs, failed.sum(),
+                walk.failures.size());
+        return new SitemapSummary(sitemapUrl, walk.sitemapsRead, walk.failures, analyzed.sum(), failed.sum(),
+                walk.skipped, walk.truncated.get(), !completed, durationMs);
+    }
+
+    private SeoAnalysisResult analyzeUrl(String url, Set<MetadataField> fields, Long userId) throws Exception {
+        ScraperMetadata metadata = scraperService.extractMetadata(url, fields);
+        SeoAnalysisResult result = analysisService.analyze(metadata, fields);
+        if (userId != null) {
+            historyWriter.submit(userId, url, fields, metadata, result);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the sitemap tree depth-first. Only runs on the batch's source thread, apart from {@code truncated}.
+     */
+    private class Walk {
+
+        private final Deque<String> sitemaps = new ArrayDeque<>();
+        private final Set<String> visited = new HashSet<>();
+        private final Map<String, String> failures = new LinkedHashMap<>();
+        private final AtomicBoolean truncated = new AtomicBoolean();
+        // Host of the URLs that are read; the host the root sitemap landed on once it is fetched
+        private String host;
+        private final int maxUrls;
+        private int sitemapsRead;
+        private int urls;
+        private long skipped;
+
+        Walk(String sitemapUrl, int maxUrls) {
+            this.host = hostOf(sitemapUrl);
+            this.maxUrls = maxUrls;
+            sitemaps.push(sitemapUrl);
+        }
+
+        void read(Consumer<String> sink) throws IOException {
+            while (!sitemaps.isEmpty() && urls < maxUrls) {
+                String sitemap = sitemaps.pop();
+                if (!visited.add(UrlNormalizer.normalize(sitemap))) {
+                    continue;
+                }
+                if (visited.size() > maxSitemaps) {
+                    truncated.set(true);
+                    return;
+                }
+                Path spool = Files.createTempFile("sitemap-", ".urls");
+                try {
+                    readOne(sitemap, spool);
+                    replay(spool, sink);
+                } finally {
+                    Files.deleteIfExists(spool);
+                }
+            }
+            if (!sitemaps.isEmpty()) {
+                truncated.set(true);
+            }
+        }
+
+        // Downloads one sitemap, writing its page URLs to the spool, one per line
+        private void readOne(String sitemap, Path spool) throws IOException {
+            Deque<String> children = new ArrayDeque<>();
+            try (BufferedWriter out = Files.newBufferedWriter(spool, StandardCharsets.UTF_8);
+                 FetchedPage file = open(sitemap)) {
+                if (visited.size() == 1) {
+                    // the root sitemap may redirect (e.g. example.com to www.example.com): its URLs live on that host
+                    String landed = hostOf(file.getUrl());
+                    if (landed != null) {
+                        host = landed;
+                    }
+                }
+                SitemapReader.read(file.getBody(), maxBytes, new SitemapReader.Handler() {
+                    @Override
+                    public boolean url(String loc) {
+                        if (!onHost(loc)) {
+                            skipped++;
+                            return true;
+                        }
+                        if (urls >= maxUrls) {
+                            truncated.set(true);
+                            return false;
+                        }
+                        urls++;
+                        try {
+                            out.write(loc);
+                            out.newLine();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public void sitemap(String loc) {
+                        if (onHost(loc)) {
+                            children.add(loc);
+                        } else {
+                            skipped++;
+                        }
+                    }
+                });
+                sitemapsRead++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Sitemap reading was interrupted");
+            } catch (UncheckedIOException e) {
+                // the spool could not be written: a local problem, not one of this sitemap
+                throw e.getCause();
+            } catch (IOException | XMLStreamException | IllegalArgumentException e) {
+                // a broken sitemap doesn't stop the others; the URLs read before the error are analysed
+                logger.debug("Could not read sitemap {}: {}", sitemap, e.toString());
+                if (failures.size() < MAX_REPORTED_FAILURES) {
+                    failures.put(sitemap, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                }
+            }
+            // children in document order, ahead of the remaining siblings of this sitemap
+            children.descendingIterator().forEachRemaining(sitemaps::push);
+        }
+
+        private void replay(Path spool, Consumer<String> sink) throws IOException {
+            try (BufferedReader in = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+                String url;
+                while ((url = in.readLine()) != null) {
+                    sink.accept(url);
+                }
+            }
+        }
+
+        // The host permit only spaces the request start; the sitemap is downloaded within readTimeout
+        private FetchedPage open(String sitemap) throws IOException, InterruptedException {
+            try (HostScheduler.Permit permit = hostScheduler.acquire(sitemap)) {
+                return pageFetcher.fetchResource(sitemap, maxBytes, readTimeout);
+            }
+        }
+
+        private boolean onHost(String loc) {
+            return loc.length() <= MAX_LOC_LENGTH
+                    && (loc.startsWith("http://") || loc.startsWith("https://"))
+                    && host.equals(hostOf(loc));
+        }
+    }
+
+    // Host and port, lower case; null when the URL doesn't parse. Also rejects URLs with line breaks.
+    private static String hostOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            return uri.getHost() == null ? null : uri.getHost().toLowerCase(Locale.ROOT) + ":" + uri.getPort();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
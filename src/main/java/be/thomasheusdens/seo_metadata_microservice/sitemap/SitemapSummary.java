@@ -0,0 +1,26 @@
+package be.thomasheusdens.seo_metadata_microservice.sitemap;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Totals of a sitemap analysis. {@code failedSitemaps} maps each sitemap that could not be (fully) read to its error;
+ * the URLs read from it before the error were still analysed. {@code urlsSkipped} counts the URLs and child sitemaps
+ * left out because they are not on the sitemap's host. {@code truncated} is true when URLs or child sitemaps were
+ * left out because of {@code maxUrls} / {@code spring.app.sitemap.maxSitemaps}.
+ */
+@Getter
+@AllArgsConstructor
+public class SitemapSummary {
+    private String sitemapUrl;
+    private int sitemapsRead;
+    private Map<String, String> failedSitemaps;
+    private long urlsAnalyzed;
+    private long urlsFailed;
+    private long urlsSkipped;
+    private boolean truncated;
+    private boolean cancelled;
+    private long durationMs;
+}
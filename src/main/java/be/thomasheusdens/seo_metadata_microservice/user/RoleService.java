@@ -1,21 +1,43 @@
 package be.thomasheusdens.seo_metadata_microservice.user;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Roles by name are cached, every registration and first OAuth2 login looks up the same role. The entry is dropped
+ * when the role is saved through {@link #createRole(Role)}; other nodes see a change after at most
+ * {@code spring.app.roleCache.ttlSeconds}. Hit rate is published as {@code cache.*} metrics tagged {@code cache=roles}.
+ */
 @Service
 public class RoleService {
 
     private final RoleRepository roleRepo;
+    private final Cache<String, Role> rolesByName;
 
-    public RoleService(RoleRepository roleRepo) {
+    public RoleService(RoleRepository roleRepo,
+                       @Value("${spring.app.roleCache.ttlSeconds:300}") long ttlSeconds,
+                       @Value("${spring.app.roleCache.maxSize:1000}") long maxSize,
+                       MeterRegistry registry) {
         this.roleRepo = roleRepo;
+        this.rolesByName = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, rolesByName, "roles");
     }
 
     public Optional<Role> findByName(String roleName) {
-        return roleRepo.findByName(roleName);
+        return Optional.ofNullable(rolesByName.get(roleName, name -> roleRepo.findByName(name).orElse(null)));
     }
 
     public List<Role> findAll() {
@@ -23,6 +45,12 @@ public class RoleService {
     }
 
     public Role createRole(Role role) {
-        return roleRepo.save(role);
+        Role saved = roleRepo.save(role);
+        rolesByName.invalidate(saved.getName());
+        return saved;
+    }
+
+    public CacheStats cacheStats() {
+        return rolesByName.stats();
     }
 }
\ No newline at end of file
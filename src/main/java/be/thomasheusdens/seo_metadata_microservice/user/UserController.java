@@ -1,10 +1,9 @@
 package be.thomasheusdens.seo_metadata_microservice.user;
 
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/users")
 public class UserController {
@@ -17,19 +16,25 @@ public class UserController {
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping
-    public List<User> getAllUsers() {
-        return userService.findAll();
+    public UserPage getUsers(@RequestParam(required = false) Long cursor,
+                             @RequestParam(defaultValue = "50") int limit,
+                             @RequestParam(required = false) String username) {
+        return userService.findPage(cursor, limit, username);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/{id}")
-    public User getUser(@PathVariable Long id) {
-        return userService.findById(id);
+    public ResponseEntity<UserSummary> getUser(@PathVariable Long id) {
+        User user = userService.findById(id);
+        if (user == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(UserSummary.from(user));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping
-    public User createUser(@RequestBody User user) {
-        return userService.createUser(user);
+    public UserSummary createUser(@RequestBody User user) {
+        return UserSummary.from(userService.createUser(user));
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package be.thomasheusdens.seo_metadata_microservice.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of users. Pass {@code nextCursor} as {@code cursor} to get the next page; it is null on the last page.
+ */
+@Getter
+@AllArgsConstructor
+public class UserPage {
+    private List<UserSummary> users;
+    private Long nextCursor;
+}
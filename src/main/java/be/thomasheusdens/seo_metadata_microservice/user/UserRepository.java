@@ -1,8 +1,21 @@
 package be.thomasheusdens.seo_metadata_microservice.user;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+
+    // Keyset page: seeks past the cursor on the primary key instead of counting skipped rows with OFFSET
+    @Query("SELECT u.id FROM User u WHERE u.id > :cursor AND u.username LIKE :pattern ESCAPE '\\' ORDER BY u.id")
+    List<Long> findPageIds(@Param("cursor") long cursor, @Param("pattern") String pattern, Pageable page);
+
+    // Loads a page with its roles in one query; paging happens in findPageIds, so the fetch join never paginates in memory
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles WHERE u.id IN :ids ORDER BY u.id")
+    List<User> findAllWithRolesByIdIn(@Param("ids") List<Long> ids);
 }
\ No newline at end of file
@@ -1,32 +1,101 @@
 package be.thomasheusdens.seo_metadata_microservice.user;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.security.Principal;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Users by username are cached (login, token refresh and OAuth2 look the same user up several times); the entry is
+ * dropped when the user is saved through {@link #createUser(User)}. Other nodes see a change after at most
+ * {@code spring.app.userCache.ttlSeconds}. Hit rate is published as {@code cache.*} metrics tagged {@code cache=users}.
+ */
 @Service
 public class UserService {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final UserRepository userRepo;
+    private final Cache<String, User> usersByUsername;
 
-    public UserService(UserRepository userRepo) {
+    public UserService(UserRepository userRepo,
+                       @Value("${spring.app.userCache.ttlSeconds:300}") long ttlSeconds,
+                       @Value("${spring.app.userCache.maxSize:10000}") long maxSize,
+                       MeterRegistry registry) {
         this.userRepo = userRepo;
+        this.usersByUsername = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, usersByUsername, "users");
     }
 
-    public List<User> findAll() {
-        return userRepo.findAll();
+    /**
+     * Returns up to {@code limit} users with an id above {@code cursor}, optionally only those whose username starts
+     * with {@code usernamePrefix}. Two queries per page whatever the page size or table size.
+     */
+    public UserPage findPage(Long cursor, int limit, String usernamePrefix) {
+        int size = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        String pattern = (usernamePrefix == null ? "" : escapeLike(usernamePrefix)) + "%";
+
+        // one extra id tells whether there is a next page
+        List<Long> ids = userRepo.findPageIds(cursor == null ? 0 : cursor, pattern, PageRequest.of(0, size + 1));
+        boolean hasNext = ids.size() > size;
+        if (hasNext) {
+            ids = ids.subList(0, size);
+        }
+        if (ids.isEmpty()) {
+            return new UserPage(List.of(), null);
+        }
+
+        List<UserSummary> users = userRepo.findAllWithRolesByIdIn(ids).stream()
+                .map(UserSummary::from)
+                .toList();
+        return new UserPage(users, hasNext ? ids.getLast() : null);
     }
 
     public User findById(Long id) {
         return userRepo.findById(id).orElse(null);
     }
 
+    // Unknown usernames aren't cached: the loader returns null, so a later registration is seen immediately
     public Optional<User> findByUsername(String username) {
-        return userRepo.findByUsername(username);
+        return Optional.ofNullable(usersByUsername.get(username, name -> userRepo.findByUsername(name).orElse(null)));
+    }
+
+    /**
+     * Id of the authenticated caller. A token whose user no longer exists fails with
+     * {@link UsernameNotFoundException}, which Spring Security answers with 401.
+     */
+    public Long currentUserId(Principal principal) {
+        return Optional.ofNullable(principal)
+                .flatMap(p -> findByUsername(p.getName()))
+                .map(User::getId)
+                .orElseThrow(() -> new UsernameNotFoundException("Unknown user"));
     }
 
     public User createUser(User user) {
-        return userRepo.save(user);
+        User saved = userRepo.save(user);
+        usersByUsername.invalidate(saved.getUsername());
+        return saved;
+    }
+
+    public CacheStats cacheStats() {
+        return usersByUsername.stats();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 }
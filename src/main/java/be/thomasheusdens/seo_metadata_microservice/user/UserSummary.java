@@ -0,0 +1,28 @@
+package be.thomasheusdens.seo_metadata_microservice.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * What the users API exposes of a {@link User}: no password hash.
+ */
+@Getter
+@AllArgsConstructor
+public class UserSummary {
+    private Long id;
+    private String username;
+    private LocalDateTime createdAt;
+    private List<String> roles;
+
+    public static UserSummary from(User user) {
+        return new UserSummary(
+                user.getId(),
+                user.getUsername(),
+                user.getCreatedAt(),
+                user.getRoles().stream().map(Role::getName).sorted().toList()
+        );
+    }
+}
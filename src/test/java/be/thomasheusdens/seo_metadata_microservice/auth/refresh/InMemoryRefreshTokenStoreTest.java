@@ -0,0 +1,194 @@
+package be.thomasheusdens.seo_metadata_microservice.auth.refresh;
+
+import be.thomasheusdens.seo_metadata_microservice.user.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryRefreshTokenStoreTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private JdbcTemplate jdbcTemplate;
+    private InMemoryRefreshTokenStore store;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE refresh_tokens (id BIGINT AUTO_INCREMENT PRIMARY KEY, token VARCHAR(255) NOT NULL UNIQUE, "
+                + "user_id BIGINT NOT NULL, expiry_date TIMESTAMP NOT NULL, device_info VARCHAR(255), created_at TIMESTAMP NOT NULL)");
+        store = new InMemoryRefreshTokenStore(null, jdbcTemplate, new DataSourceTransactionManager(dataSource), registry);
+
+        user = new User();
+        ReflectionTestUtils.setField(user, "id", 1L);
+        user.setUsername("alice");
+    }
+
+    @Test
+    void rotationIsPersistedAsTheFinalStateOnly() {
+        RefreshToken first = store.save(token("first"));
+        store.flush();
+        RefreshToken second = store.rotate(first, token("second"));
+        RefreshToken third = store.rotate(second, token("third"));
+        store.flush();
+
+        assertThat(store.findByToken("first")).isEmpty();
+        assertThat(store.findByToken("third")).contains(third);
+        assertThat(store.countByUser(user)).isEqualTo(1);
+        assertThat(persistedTokens()).containsExactly("third");
+    }
+
+    @Test
+    void rotatedTokenCannotBeReused() {
+        RefreshToken first = store.save(token("first"));
+        store.rotate(first, token("second"));
+
+        assertThatThrownBy(() -> store.rotate(first, token("again"))).isInstanceOf(TokenRefreshException.class);
+    }
+
+    @Test
+    void deleteAllByUserRemovesEverySession() {
+        store.save(token("a"));
+        store.save(token("b"));
+        store.flush();
+        store.deleteAllByUser(user);
+        store.flush();
+
+        assertThat(store.countByUser(user)).isZero();
+        assertThat(persistedTokens()).isEmpty();
+    }
+
+    @Test
+    void deleteAllByUserRacingASaveIsPersistedAfterItsInsert() throws Exception {
+        try (ExecutorService other = Executors.newSingleThreadExecutor()) {
+            CompletableFuture<Future<?>> logout = new CompletableFuture<>();
+            // the moment save() queues its insert, a logout of the same user starts on another thread and gets
+            // a head start: it must not be able to queue its delete before the insert
+            ReflectionTestUtils.setField(store, "pending", new LinkedBlockingQueue<Object>() {
+                @Override
+                public boolean add(Object write) {
+                    if (!logout.isDone()) {
+                        logout.complete(other.submit(() -> store.deleteAllByUser(user)));
+                        try {
+                            logout.join().get(200, TimeUnit.MILLISECONDS);
+                        } catch (TimeoutException e) {
+                            // still waiting for the stripe lock
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                    return super.add(write);
+                }
+            });
+
+            store.save(token("t"));
+            logout.join().get();
+            store.flush();
+
+            assertThat(store.findByToken("t")).isEmpty();
+            assertThat(persistedTokens()).isEmpty();
+        }
+    }
+
+    @Test
+    void evictOldestKeepsTheNewestSessions() {
+        Instant now = Instant.now();
+        for (int i = 0; i < 5; i++) {
+            RefreshToken token = token("t" + i);
+            token.setCreatedAt(now.plusSeconds(i));
+            store.save(token);
+        }
+        store.flush();
+        store.evictOldest(user, 2);
+        store.flush();
+
+        assertThat(store.countByUser(user)).isEqualTo(2);
+        assertThat(persistedTokens()).containsExactlyInAnyOrder("t3", "t4");
+    }
+
+    @Test
+    void failedFlushIsRetriedInOrderOnceTheDatabaseIsBack() {
+        RefreshToken first = store.save(token("first"));
+        store.flush();
+        jdbcTemplate.execute("ALTER TABLE refresh_tokens RENAME TO refresh_tokens_offline");
+        store.rotate(first, token("second"));
+        store.flush();
+        store.save(token("other"));
+        store.flush();
+
+        jdbcTemplate.execute("ALTER TABLE refresh_tokens_offline RENAME TO refresh_tokens");
+        store.flush();
+
+        assertThat(persistedTokens()).containsExactlyInAnyOrder("second", "other");
+        assertThat(registry.get("auth.refresh.writebehind.failed").counter().count()).isZero();
+    }
+
+    @Test
+    void outageLongerThanTheFlushAttemptsLosesNoWrites() {
+        RefreshToken first = store.save(token("first"));
+        store.flush();
+        jdbcTemplate.execute("ALTER TABLE refresh_tokens RENAME TO refresh_tokens_offline");
+        store.rotate(first, token("second"));
+        for (int i = 0; i < 20; i++) {
+            store.flush();
+        }
+        store.save(token("other"));
+        store.flush();
+
+        jdbcTemplate.execute("ALTER TABLE refresh_tokens_offline RENAME TO refresh_tokens");
+        // flushes back off during the outage: the retry comes within the longest backoff
+        for (int i = 0; i < 100 && persistedTokens().size() < 2; i++) {
+            store.flush();
+        }
+
+        assertThat(persistedTokens()).containsExactlyInAnyOrder("second", "other");
+        assertThat(registry.get("auth.refresh.writebehind.failed").counter().count()).isZero();
+    }
+
+    @Test
+    void writeThatKeepsFailingIsDroppedWithoutTheRestOfItsBatch() {
+        store.save(token("good"));
+        RefreshToken bad = token("bad");
+        bad.setDeviceInfo("x".repeat(300));
+        store.save(bad);
+
+        for (int i = 0; i < 5; i++) {
+            store.flush();
+        }
+
+        assertThat(persistedTokens()).containsExactly("good");
+        assertThat(registry.get("auth.refresh.writebehind.failed").counter().count()).isEqualTo(1);
+    }
+
+    private RefreshToken token(String value) {
+        RefreshToken token = new RefreshToken();
+        token.setUser(user);
+        token.setToken(value);
+        token.setExpiryDate(Instant.now().plusSeconds(3600));
+        token.setCreatedAt(Instant.now());
+        return token;
+    }
+
+    private List<String> persistedTokens() {
+        return jdbcTemplate.queryForList("SELECT token FROM refresh_tokens", String.class);
+    }
+}
@@ -0,0 +1,92 @@
+package be.thomasheusdens.seo_metadata_microservice.auth.refresh;
+
+import be.thomasheusdens.seo_metadata_microservice.user.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class JpaRefreshTokenStoreTest {
+
+    private static final Instant T0 = Instant.parse("2026-10-01T10:00:00Z");
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private JpaRefreshTokenStore store;
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        alice = new User("alice", "hash");
+        bob = new User("bob", "hash");
+        entityManager.persist(alice);
+        entityManager.persist(bob);
+        // inserted out of order; two sessions share a creation time, the higher id counts as newer
+        session(alice, "a-2", 2);
+        session(alice, "a-5", 5);
+        session(alice, "a-1", 1);
+        session(alice, "a-4a", 4);
+        session(alice, "a-4b", 4);
+        session(alice, "a-3", 3);
+        session(bob, "b-1", 1);
+        entityManager.flush();
+        entityManager.clear();
+        store = new JpaRefreshTokenStore(refreshTokenRepository);
+    }
+
+    @Test
+    void findSessionIdsBeyondSkipsTheNewestSessions() {
+        List<Long> beyond = refreshTokenRepository.findSessionIdsBeyond(alice, 2);
+
+        assertThat(beyond).extracting(id -> refreshTokenRepository.findById(id).orElseThrow().getToken())
+                .containsExactly("a-4a", "a-3", "a-2", "a-1");
+    }
+
+    @Test
+    void evictOldestKeepsTheNewestSessionsOfThatUserOnly() {
+        store.evictOldest(alice, 3);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(tokens(alice)).containsExactlyInAnyOrder("a-5", "a-4b", "a-4a");
+        assertThat(tokens(bob)).containsExactly("b-1");
+    }
+
+    @Test
+    void evictOldestDeletesNothingWithinTheLimit() {
+        store.evictOldest(alice, 6);
+        store.evictOldest(bob, 1);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(refreshTokenRepository.count()).isEqualTo(7);
+    }
+
+    private void session(User user, String token, int minutes) {
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUser(user);
+        refreshToken.setToken(token);
+        refreshToken.setExpiryDate(T0.plusSeconds(86400));
+        refreshToken.setCreatedAt(T0.plusSeconds(60L * minutes));
+        entityManager.persist(refreshToken);
+    }
+
+    private List<String> tokens(User user) {
+        return entityManager.createQuery("SELECT rt.token FROM RefreshToken rt WHERE rt.user = :user", String.class)
+                .setParameter("user", user)
+                .getResultList();
+    }
+}
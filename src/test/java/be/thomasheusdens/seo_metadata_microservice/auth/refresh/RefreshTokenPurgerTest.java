@@ -0,0 +1,92 @@
+package be.thomasheusdens.seo_metadata_microservice.auth.refresh;
+
+import be.thomasheusdens.seo_metadata_microservice.user.User;
+import be.thomasheusdens.seo_metadata_microservice.user.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+// each purge batch commits on its own
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RefreshTokenPurgerTest {
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final Instant now = Instant.now();
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(new User("purged", "hash"));
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 14; i++) {
+            // 10 expired, 4 still valid
+            Instant expiry = now.plus(Duration.ofHours(i < 10 ? -1 - i : 1 + i));
+            rows.add(new Object[]{"token-" + i, user.getId(), Timestamp.from(expiry), Timestamp.from(now)});
+        }
+        new JdbcTemplate(dataSource).batchUpdate("INSERT INTO refresh_tokens "
+                + "(token, user_id, expiry_date, created_at) VALUES (?, ?, ?, ?)", rows);
+    }
+
+    @AfterEach
+    void tearDown() {
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void deletesExpiredTokensInBatchesAndKeepsLiveOnes() {
+        RefreshTokenRepository repository = mock(RefreshTokenRepository.class, delegatesTo(refreshTokenRepository));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RefreshTokenPurger purger = new RefreshTokenPurger(repository, transactionManager, 3, 0, registry);
+
+        assertThat(purger.purge(now)).isEqualTo(10);
+
+        // 3 + 3 + 3 + 1
+        verify(repository, times(4)).deleteAllByIdIn(argThat(ids -> ids.size() <= 3));
+        assertThat(refreshTokenRepository.findAll())
+                .extracting(RefreshToken::getToken)
+                .containsExactlyInAnyOrder("token-10", "token-11", "token-12", "token-13");
+        assertThat(registry.get("auth.refresh.purge.deleted").counter().count()).isEqualTo(10);
+    }
+
+    @Test
+    void purgeWithNothingExpiredDeletesNothing() {
+        RefreshTokenPurger purger = new RefreshTokenPurger(refreshTokenRepository, transactionManager, 3, 0,
+                new SimpleMeterRegistry());
+
+        assertThat(purger.purge(now.minus(Duration.ofDays(1)))).isZero();
+        assertThat(refreshTokenRepository.count()).isEqualTo(14);
+    }
+}
@@ -0,0 +1,80 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CrawlControllerTest {
+
+    private final UsernamePasswordAuthenticationToken alice =
+            new UsernamePasswordAuthenticationToken("alice", null, List.of());
+    private final CrawlPlan plan = new CrawlPlan("crawl-1", null, "https://example.com/", "example.com", 1, 1, 1,
+            Set.of(), false);
+
+    private SiteCrawler siteCrawler;
+    private CrawlSlots crawlSlots;
+    private CrawlController controller;
+
+    @BeforeEach
+    void setUp() {
+        siteCrawler = mock(SiteCrawler.class);
+        UserService userService = mock(UserService.class);
+        when(userService.findByUsername("alice")).thenReturn(Optional.empty());
+        crawlSlots = new CrawlSlots(4, 1);
+        controller = new CrawlController(siteCrawler, userService, crawlSlots);
+    }
+
+    @Test
+    void rejectsACrawlAboveTheUsersLimit() throws Exception {
+        CountDownLatch finish = new CountDownLatch(1);
+        when(siteCrawler.plan(any(), any())).thenReturn(plan);
+        when(siteCrawler.crawl(any(), any())).thenAnswer(invocation -> {
+            finish.await();
+            return null;
+        });
+
+        ResponseEntity<SseEmitter> running = controller.crawl(new CrawlRequest(), alice);
+        ResponseEntity<SseEmitter> rejected = controller.crawl(new CrawlRequest(), alice);
+
+        assertThat(running.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected.getBody()).isNull();
+
+        finish.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (crawlSlots.running() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(crawlSlots.running()).isZero();
+        assertThat(controller.crawl(new CrawlRequest(), alice).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void releasesTheSlotWhenTheRequestIsInvalid() {
+        when(siteCrawler.plan(any(), any())).thenThrow(new IllegalArgumentException("Invalid URL"));
+
+        assertThatThrownBy(() -> controller.crawl(new CrawlRequest(), alice))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(crawlSlots.running()).isZero();
+        verify(siteCrawler, never()).crawl(any(), any());
+    }
+}
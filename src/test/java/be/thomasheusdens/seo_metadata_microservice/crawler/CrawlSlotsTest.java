@@ -0,0 +1,49 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CrawlSlotsTest {
+
+    @Test
+    void limitsCrawlsPerUser() {
+        CrawlSlots slots = new CrawlSlots(10, 2);
+
+        Optional<CrawlSlots.Slot> first = slots.tryAcquire("alice");
+        assertThat(slots.tryAcquire("alice")).isPresent();
+        assertThat(slots.tryAcquire("alice")).isEmpty();
+        assertThat(slots.tryAcquire("bob")).isPresent();
+
+        first.orElseThrow().close();
+        assertThat(slots.tryAcquire("alice")).isPresent();
+    }
+
+    @Test
+    void limitsCrawlsOverall() {
+        CrawlSlots slots = new CrawlSlots(2, 2);
+
+        CrawlSlots.Slot alice = slots.tryAcquire("alice").orElseThrow();
+        slots.tryAcquire("bob").orElseThrow();
+
+        assertThat(slots.tryAcquire("carol")).isEmpty();
+        alice.close();
+        assertThat(slots.tryAcquire("carol")).isPresent();
+    }
+
+    @Test
+    void closingASlotTwiceReleasesItOnce() {
+        CrawlSlots slots = new CrawlSlots(2, 2);
+        CrawlSlots.Slot slot = slots.tryAcquire("alice").orElseThrow();
+        slots.tryAcquire("alice").orElseThrow();
+
+        slot.close();
+        slot.close();
+
+        assertThat(slots.running()).isEqualTo(1);
+        assertThat(slots.tryAcquire("alice")).isPresent();
+        assertThat(slots.tryAcquire("alice")).isEmpty();
+    }
+}
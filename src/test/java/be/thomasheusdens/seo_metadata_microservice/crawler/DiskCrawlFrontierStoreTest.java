@@ -0,0 +1,73 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataField;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DiskCrawlFrontierStoreTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void cleanupLeavesARunningCrawlAlone() throws Exception {
+        // retention 0: every crawl directory counts as abandoned by age
+        DiskCrawlFrontierStore store = new DiskCrawlFrontierStore(root.toString(), 1 << 20, 16, 0);
+        CrawlPlan plan = plan();
+        try (CrawlFrontier frontier = store.create(plan)) {
+            frontier.markSeen("https://example.com/");
+            frontier.push("https://example.com/", 0);
+            age(plan);
+
+            store.deleteAbandoned();
+
+            assertThat(root.resolve(plan.crawlId())).isDirectory();
+            assertThat(frontier.poll(0, TimeUnit.MILLISECONDS).url()).isEqualTo("https://example.com/");
+        }
+
+        age(plan);
+        store.deleteAbandoned();
+        assertThat(root.resolve(plan.crawlId())).doesNotExist();
+    }
+
+    @Test
+    void aRunningCrawlCantBeResumedTwice() throws Exception {
+        DiskCrawlFrontierStore store = new DiskCrawlFrontierStore(root.toString(), 1 << 20, 16, 72);
+        CrawlPlan plan = plan();
+        CrawlFrontier frontier = store.create(plan);
+        CrawlPlan resumable = store.findResumable(plan.crawlId()).orElseThrow();
+
+        assertThatThrownBy(() -> store.resume(resumable))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("already running");
+        assertThat(store.isOpen(plan.crawlId())).isTrue();
+
+        frontier.close();
+        assertThat(store.isOpen(plan.crawlId())).isFalse();
+        try (CrawlFrontier resumed = store.resume(resumable)) {
+            assertThat(store.isOpen(plan.crawlId())).isTrue();
+        }
+        assertThat(store.isOpen(plan.crawlId())).isFalse();
+    }
+
+    private CrawlPlan plan() {
+        return new CrawlPlan(UUID.randomUUID().toString(), 1L, "https://example.com/", "example.com", 2, 100, 1,
+                Set.of(MetadataField.TITLE), false);
+    }
+
+    private void age(CrawlPlan plan) throws Exception {
+        Files.setLastModifiedTime(root.resolve(plan.crawlId()).resolve("state"),
+                FileTime.from(Instant.now().minusSeconds(3600)));
+    }
+}
@@ -0,0 +1,108 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DiskCrawlFrontierTest {
+
+    // smallest allowed segment: about 80 of the test URLs each, so the queue spans many segments
+    private static final long SEGMENT_BYTES = 8 + 8192;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void returnsPushedUrlsInOrderAcrossSegments() throws Exception {
+        try (DiskCrawlFrontier frontier = new DiskCrawlFrontier(dir, SEGMENT_BYTES, 64, 16)) {
+            for (int i = 0; i < 1000; i++) {
+                assertThat(frontier.markSeen(url(i))).isTrue();
+                frontier.push(url(i), i % 7);
+            }
+            assertThat(frontier.markSeen(url(500))).isFalse();
+
+            for (int i = 0; i < 1000; i++) {
+                CrawlTarget target = frontier.poll(0, TimeUnit.MILLISECONDS);
+                assertThat(target.url()).isEqualTo(url(i));
+                assertThat(target.depth()).isEqualTo(i % 7);
+                frontier.done(target);
+            }
+            assertThat(frontier.poll(0, TimeUnit.MILLISECONDS)).isNull();
+            assertThat(frontier.size()).isZero();
+            assertThat(segments()).hasSizeLessThanOrEqualTo(1);
+        }
+    }
+
+    @Test
+    void resumesAfterTheOldestPageThatIsNotDone() throws Exception {
+        DiskCrawlFrontier frontier = new DiskCrawlFrontier(dir, SEGMENT_BYTES, 16, 16);
+        for (int i = 0; i < 300; i++) {
+            frontier.markSeen(url(i));
+            frontier.push(url(i), 1);
+        }
+        List<CrawlTarget> taken = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            taken.add(frontier.poll(0, TimeUnit.MILLISECONDS));
+        }
+        // page 150 is still in flight when the process stops
+        taken.stream().filter(target -> !target.url().equals(url(150))).forEach(frontier::done);
+        frontier.close();
+
+        try (DiskCrawlFrontier resumed = new DiskCrawlFrontier(dir, SEGMENT_BYTES, 16, 16)) {
+            assertThat(resumed.pushed()).isEqualTo(300);
+            assertThat(resumed.size()).isEqualTo(150);
+            assertThat(resumed.markSeen(url(10))).isFalse();
+            assertThat(resumed.poll(0, TimeUnit.MILLISECONDS).url()).isEqualTo(url(150));
+
+            resumed.push(url(300), 2);
+            List<String> rest = new ArrayList<>();
+            CrawlTarget target;
+            while ((target = resumed.poll(0, TimeUnit.MILLISECONDS)) != null) {
+                rest.add(target.url());
+            }
+            assertThat(rest).hasSize(150).endsWith(url(300));
+        }
+    }
+
+    @Test
+    void rejectsAUrlLongerThanARecordHolds() {
+        try (DiskCrawlFrontier frontier = new DiskCrawlFrontier(dir, SEGMENT_BYTES, 16, 16)) {
+            String tooLong = url(1) + "&q=" + "x".repeat(CrawlFrontier.MAX_URL_BYTES);
+
+            assertThatThrownBy(() -> frontier.push(tooLong, 1)).isInstanceOf(IllegalArgumentException.class);
+            assertThat(frontier.size()).isZero();
+            assertThat(frontier.pushed()).isZero();
+        }
+    }
+
+    @Test
+    void refusesASecondOwnerAndDeletesItsFilesWhenFinished() {
+        DiskCrawlFrontier frontier = new DiskCrawlFrontier(dir, SEGMENT_BYTES, 16, 16);
+        frontier.push(url(1), 0);
+
+        assertThatThrownBy(() -> new DiskCrawlFrontier(dir, SEGMENT_BYTES, 16, 16))
+                .isInstanceOf(IllegalStateException.class);
+
+        frontier.finish();
+        assertThat(dir).doesNotExist();
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).toList();
+        }
+    }
+
+    private static String url(int i) {
+        return "https://shop.example/catalog/shoes?color=red&size=" + i + "&sort=price-ascending&page=" + (i % 40);
+    }
+}
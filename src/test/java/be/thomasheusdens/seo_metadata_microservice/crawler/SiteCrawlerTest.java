@@ -0,0 +1,218 @@
+package be.thomasheusdens.seo_metadata_microservice.crawler;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.HostScheduler;
+import be.thomasheusdens.seo_metadata_microservice.scraper.HttpClientPageFetcher;
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataCache;
+import be.thomasheusdens.seo_metadata_microservice.scraper.ScraperService;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisService;
+import be.thomasheusdens.seo_metadata_microservice.seo.history.AnalysisResultWriter;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.mock;
+
+class SiteCrawlerTest {
+
+    private static final int PAGES = 400;
+
+    private HttpServer server;
+    private String base;
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private SiteCrawler crawler;
+    private ScraperService scraperService;
+
+    @TempDir
+    Path frontierDir;
+
+    // Stub site: page n links to 2n+1 and 2n+2 (a binary tree), back to the home page, to itself with a fragment,
+    // to a PDF and to another host; the home page also has a faceted link longer than a frontier accepts
+    @BeforeEach
+    void startStubSite() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            hits.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            int n = path.startsWith("/p/") ? Integer.parseInt(path.substring(3)) : 0;
+
+            StringBuilder html = new StringBuilder("<html><head><title>Page ").append(n).append("</title></head><body>");
+            for (int child = 2 * n + 1; child <= 2 * n + 2 && child < PAGES; child++) {
+                html.append("<a href=\"/p/").append(child).append("\">child</a>");
+            }
+            if (n == 0) {
+                html.append("<a href=\"/p/1?facets=").append("x".repeat(CrawlFrontier.MAX_URL_BYTES)).append("\">all</a>");
+            }
+            html.append("<a href=\"/\">home</a><a href=\"#top\">top</a><a href=\"/files/report.pdf\">pdf</a>")
+                    .append("<a href=\"https://elsewhere.example/\">out</a></body></html>");
+
+            byte[] body = html.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        scraperService = new ScraperService(new HttpClientPageFetcher(5000, 30000, 2 * 1024 * 1024, true),
+                new HostScheduler(16, 0, 256, registry), new MetadataCache(300, 86400, 64 * 1024 * 1024, registry),
+                registry);
+        crawler = new SiteCrawler(scraperService, new SeoAnalysisService(), null,
+                new InMemoryCrawlFrontierStore(), 1000, 20, 8, 32, 10000);
+    }
+
+    @AfterEach
+    void stopStubSite() {
+        server.stop(0);
+    }
+
+    @Test
+    void crawlsEveryReachablePageOfTheHostOnce() {
+        List<CrawlPageResult> pages = new CopyOnWriteArrayList<>();
+
+        CrawlSummary summary = crawler.crawl(crawler.plan(request(null, null), null), pages::add);
+
+        assertThat(summary.getPagesCrawled()).isEqualTo(PAGES);
+        assertThat(summary.getPagesFailed()).isZero();
+        assertThat(summary.isBudgetExhausted()).isFalse();
+        assertThat(pages).hasSize(PAGES);
+        assertThat(pages).allSatisfy(page -> assertThat(page.getResult()).isNotNull());
+        assertThat(hits).hasSize(PAGES).allSatisfy((path, count) -> assertThat(count.get()).isEqualTo(1));
+        assertThat(hits).doesNotContainKey("/files/report.pdf");
+        assertThat(summary.getIssuesByCheck()).containsEntry("Meta Description", (long) PAGES);
+    }
+
+    @Test
+    void stopsAtTheDepthAndPageBudget() {
+        CrawlSummary shallow = crawler.crawl(crawler.plan(request(2, null), null), page -> { });
+        assertThat(shallow.getPagesCrawled()).isEqualTo(7);
+        assertThat(shallow.getMaxDepthReached()).isEqualTo(2);
+
+        CrawlSummary budgeted = crawler.crawl(crawler.plan(request(null, 50), null), page -> { });
+        assertThat(budgeted.getPagesCrawled()).isEqualTo(50);
+        assertThat(budgeted.isBudgetExhausted()).isTrue();
+    }
+
+    @Test
+    void listenerFailureCancelsTheCrawl() {
+        CrawlSummary summary = crawler.crawl(crawler.plan(request(null, null), null), page -> {
+            throw new IOException("client went away");
+        });
+
+        assertThat(summary.isCancelled()).isTrue();
+        assertThat(summary.getPagesCrawled()).isLessThan(PAGES);
+    }
+
+    @Test
+    void resumesACancelledCrawlFromItsDiskFrontier() {
+        SiteCrawler diskCrawler = new SiteCrawler(scraperService, new SeoAnalysisService(),
+                mock(AnalysisResultWriter.class),
+                new DiskCrawlFrontierStore(frontierDir.toString(), 1 << 20, 16, 72), 1000, 20, 4, 32, 10000);
+        Set<String> delivered = ConcurrentHashMap.newKeySet();
+
+        AtomicInteger budget = new AtomicInteger(100);
+        CrawlSummary first = diskCrawler.crawl(diskCrawler.plan(request(null, null), 42L), page -> {
+            if (budget.decrementAndGet() < 0) {
+                throw new IOException("client went away");
+            }
+            delivered.add(page.getUrl());
+        });
+        assertThat(first.isCancelled()).isTrue();
+
+        CrawlRequest resume = new CrawlRequest();
+        resume.setResumeId(first.getCrawlId());
+        assertThatThrownBy(() -> diskCrawler.plan(resume, 7L)).isInstanceOf(IllegalArgumentException.class);
+
+        CrawlSummary second = diskCrawler.crawl(diskCrawler.plan(resume, 42L), page -> delivered.add(page.getUrl()));
+
+        assertThat(second.isCancelled()).isFalse();
+        assertThat(delivered).hasSize(PAGES);
+        assertThat(frontierDir.resolve(first.getCrawlId())).doesNotExist();
+    }
+
+    @Test
+    void overLongLinksAreSkippedAndTheDiskCrawlStillEnds() {
+        SiteCrawler diskCrawler = new SiteCrawler(scraperService, new SeoAnalysisService(), null,
+                new DiskCrawlFrontierStore(frontierDir.toString(), 1 << 20, 16, 72), 1000, 20, 4, 32, 10000);
+
+        CrawlSummary summary = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> diskCrawler.crawl(diskCrawler.plan(request(null, null), null), page -> { }));
+
+        assertThat(summary.isCancelled()).isFalse();
+        assertThat(summary.getPagesCrawled()).isEqualTo(PAGES);
+        assertThat(frontierDir.resolve(summary.getCrawlId())).doesNotExist();
+    }
+
+    @Test
+    void followsTheHostTheSeedRedirectsTo() throws IOException {
+        // stands in for example.com redirecting to www.example.com: another authority, same site
+        HttpServer bare = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        AtomicInteger bareHits = new AtomicInteger();
+        bare.createContext("/", exchange -> {
+            bareHits.incrementAndGet();
+            exchange.getResponseHeaders().set("Location", base + "/");
+            exchange.sendResponseHeaders(301, -1);
+            exchange.close();
+        });
+        bare.start();
+        try {
+            CrawlRequest request = request(null, null);
+            request.setSeedUrl("http://127.0.0.1:" + bare.getAddress().getPort() + "/");
+
+            CrawlSummary summary = crawler.crawl(crawler.plan(request, null), page -> { });
+
+            assertThat(summary.getPagesCrawled()).isEqualTo(PAGES);
+            assertThat(summary.getPagesFailed()).isZero();
+            assertThat(bareHits).hasValue(1);
+            // the seed landed on the home page: the links back to it don't fetch it again
+            assertThat(hits.get("/")).hasValue(1);
+        } finally {
+            bare.stop(0);
+        }
+    }
+
+    @Test
+    void rejectsAnOverLongSeed() {
+        CrawlRequest request = request(null, null);
+        request.setSeedUrl(base + "/?q=" + "x".repeat(CrawlFrontier.MAX_URL_BYTES));
+
+        assertThatThrownBy(() -> crawler.plan(request, null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsSeedsThatAreNotHttp() {
+        CrawlRequest request = new CrawlRequest();
+        request.setSeedUrl("ftp://127.0.0.1/");
+
+        assertThatThrownBy(() -> crawler.plan(request, null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private CrawlRequest request(Integer maxDepth, Integer maxPages) {
+        CrawlRequest request = new CrawlRequest();
+        request.setSeedUrl(base + "/");
+        request.setMaxDepth(maxDepth);
+        request.setMaxPages(maxPages);
+        return request;
+    }
+}
@@ -0,0 +1,57 @@
+package be.thomasheusdens.seo_metadata_microservice.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationListTest {
+
+    @Test
+    void revokesTokensIssuedBeforeLogoutAllOnly() {
+        TokenRevocationList revocations = new TokenRevocationList(60_000, 100);
+        JwtClaims before = claims("alice", System.currentTimeMillis() - 5_000);
+        JwtClaims otherUser = claims("bob", System.currentTimeMillis() - 5_000);
+
+        revocations.revokeAll("alice");
+
+        assertThat(revocations.isRevoked(before)).isTrue();
+        assertThat(revocations.isRevoked(otherUser)).isFalse();
+        assertThat(revocations.isRevoked(claims("alice", System.currentTimeMillis() + 2_000))).isFalse();
+    }
+
+    @Test
+    void purgesRevocationsOlderThanTheTokenLifetime() throws InterruptedException {
+        TokenRevocationList revocations = new TokenRevocationList(0, 100);
+        revocations.revokeAll("alice");
+
+        Thread.sleep(1_100);
+        revocations.purgeExpired();
+
+        assertThat(revocations.size()).isZero();
+        assertThat(revocations.isRevoked(claims("alice", 0))).isFalse();
+    }
+
+    @Test
+    void bloomFilterNeverMissesAnAddedValue() {
+        BloomFilter filter = new BloomFilter(1_000, 0.01);
+        for (int i = 0; i < 1_000; i++) {
+            filter.add("user" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(filter.mightContain("user" + i)).isTrue();
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(50);
+    }
+
+    private static JwtClaims claims(String username, long issuedAt) {
+        return new JwtClaims(username, List.of("ROLE_USER"), "access", new Date(issuedAt), new Date(issuedAt + 60_000));
+    }
+}
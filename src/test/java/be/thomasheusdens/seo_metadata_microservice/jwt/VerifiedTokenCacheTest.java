@@ -0,0 +1,55 @@
+package be.thomasheusdens.seo_metadata_microservice.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+
+    private JwtUtils jwtUtils;
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = jwtUtils(60_000);
+        cache = new VerifiedTokenCache(jwtUtils, 100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void secondVerifyIsServedFromCache() {
+        String token = jwtUtils.generateAccessToken(User.withUsername("alice").password("").authorities("ROLE_USER").build());
+
+        JwtClaims first = cache.verify(token);
+        JwtClaims second = cache.verify(token);
+
+        assertThat(first.getUsername()).isEqualTo("alice");
+        assertThat(first.getRoles()).containsExactly("ROLE_USER");
+        assertThat(second).isSameAs(first);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void tamperedAndExpiredTokensAreRejectedAndNotCached() {
+        String token = jwtUtils.generateAccessToken(User.withUsername("alice").password("").authorities("ROLE_USER").build());
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        String expired = jwtUtils(-1000).generateAccessToken(User.withUsername("bob").password("").authorities("ROLE_USER").build());
+
+        assertThat(cache.verify(token)).isNotNull();
+        assertThat(cache.verify(tampered)).isNull();
+        assertThat(cache.verify(expired)).isNull();
+        assertThat(cache.verify(expired)).isNull();
+        assertThat(cache.stats().hitCount()).isZero();
+    }
+
+    private static JwtUtils jwtUtils(long expirationMs) {
+        JwtUtils utils = new JwtUtils();
+        ReflectionTestUtils.setField(utils, "jwtSecret", "test-secret-test-secret-test-secret-test-secret");
+        ReflectionTestUtils.setField(utils, "accessTokenExpirationMs", expirationMs);
+        utils.init();
+        return utils;
+    }
+}
@@ -0,0 +1,118 @@
+package be.thomasheusdens.seo_metadata_microservice.scheduling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+// the service commits its own transactions, as it does between nodes
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JobLockServiceTest {
+
+    private static final int NODES = 4;
+
+    @Autowired
+    private JobLockRepository jobLockRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<JobLockService> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(new JobLockService(jobLockRepository, transactionManager));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobLockRepository.deleteAll();
+    }
+
+    @Test
+    void onlyOneOfConcurrentCallersGetsTheLease() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch skipped = new CountDownLatch(NODES - 1);
+        AtomicInteger runs = new AtomicInteger();
+
+        List<Future<Boolean>> outcomes = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(NODES)) {
+            for (JobLockService node : nodes) {
+                outcomes.add(executor.submit(() -> {
+                    start.await();
+                    boolean ran = node.runExclusively("purge", Duration.ofMinutes(5), () -> {
+                        runs.incrementAndGet();
+                        // hold the lease until every other node has tried
+                        await(skipped);
+                    });
+                    if (!ran) {
+                        skipped.countDown();
+                    }
+                    return ran;
+                }));
+            }
+            start.countDown();
+        }
+
+        assertThat(outcomes.stream().filter(Future::resultNow).count()).isEqualTo(1);
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    void leaseIsReleasedWhenTheJobEnds() {
+        assertThat(nodes.get(0).runExclusively("purge", Duration.ofMinutes(5), () -> { })).isTrue();
+        assertThat(nodes.get(1).runExclusively("purge", Duration.ofMinutes(5), () -> { })).isTrue();
+    }
+
+    @Test
+    void expiredLeaseOfACrashedNodeIsTakenOver() {
+        AtomicInteger runs = new AtomicInteger();
+        Instant now = Instant.now();
+        jobLockRepository.saveAndFlush(new JobLock("purge"));
+        // a node that took the lease and died before releasing it
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                jobLockRepository.acquire("purge", "crashed-node", now, now.minusSeconds(1)));
+
+        assertThat(nodes.get(0).runExclusively("purge", Duration.ofMinutes(5), runs::incrementAndGet)).isTrue();
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    void unexpiredLeaseOfAnotherNodeSkipsTheJob() {
+        Instant now = Instant.now();
+        jobLockRepository.saveAndFlush(new JobLock("purge"));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                jobLockRepository.acquire("purge", "busy-node", now, now.plus(Duration.ofHours(1))));
+
+        assertThat(nodes.get(0).runExclusively("purge", Duration.ofMinutes(5), () -> { })).isFalse();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchExecutorTest {
+
+    private final BatchExecutor batchExecutor = new BatchExecutor();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(batchExecutor, "maxUrls", 50);
+        ReflectionTestUtils.setField(batchExecutor, "defaultParallelism", 4);
+        ReflectionTestUtils.setField(batchExecutor, "maxParallelism", 8);
+    }
+
+    @Test
+    void resultsComeBackInInputOrder() {
+        List<String> urls = IntStream.range(0, 40).mapToObj(i -> "https://example.com/" + i).toList();
+
+        List<BatchItem<String>> items = batchExecutor.run(urls, 8, url -> {
+            // finish out of order
+            Thread.sleep(ThreadLocalRandom.current().nextInt(20));
+            return url.toUpperCase();
+        });
+
+        assertThat(items).extracting(BatchItem::getUrl).containsExactlyElementsOf(urls);
+        assertThat(items).extracting(BatchItem::getResult)
+                .containsExactlyElementsOf(urls.stream().map(String::toUpperCase).toList());
+    }
+
+    @Test
+    void aFailingUrlOnlyFailsItsOwnItem() {
+        List<BatchItem<String>> items = batchExecutor.run(List.of("a", "b", "c", "d"), null, url -> switch (url) {
+            case "b" -> throw new IllegalStateException("boom");
+            case "c" -> throw new StackOverflowError();
+            default -> url;
+        });
+
+        assertThat(items).extracting(BatchItem::getResult).containsExactly("a", null, null, "d");
+        assertThat(items).extracting(BatchItem::getError).containsExactly(null, "boom", "StackOverflowError", null);
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedBatches() {
+        List<String> tooMany = IntStream.range(0, 51).mapToObj(i -> "https://example.com/" + i).toList();
+
+        assertThatThrownBy(() -> batchExecutor.run(List.of(), null, url -> url))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> batchExecutor.run(tooMany, null, url -> url))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("A batch accepts at most 50 URLs");
+    }
+
+    @Test
+    void parallelismIsBoundedAndCappedAtTheMaximum() {
+        List<String> urls = IntStream.range(0, 50).mapToObj(String::valueOf).toList();
+
+        assertThat(peakConcurrency(urls, 3)).isLessThanOrEqualTo(3);
+        assertThat(peakConcurrency(urls, 1000)).isLessThanOrEqualTo(8);
+        assertThat(peakConcurrency(urls, null)).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void streamingReadsNoFurtherThanTheParallelismAllows() throws Exception {
+        AtomicInteger read = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger peakAhead = new AtomicInteger();
+        ConcurrentLinkedQueue<String> done = new ConcurrentLinkedQueue<>();
+
+        boolean finished = batchExecutor.runStreaming(2, sink -> {
+            for (int i = 0; i < 30; i++) {
+                peakAhead.accumulateAndGet(read.incrementAndGet() - completed.get(), Math::max);
+                sink.accept(String.valueOf(i));
+            }
+        }, url -> {
+            Thread.sleep(5);
+            completed.incrementAndGet();
+            return url;
+        }, item -> done.add(item.getResult()));
+
+        assertThat(finished).isTrue();
+        assertThat(done).hasSize(30);
+        // the URL being read plus the two in progress
+        assertThat(peakAhead.get()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void throwingListenerStopsTheStream() throws Exception {
+        AtomicInteger read = new AtomicInteger();
+
+        boolean completed = batchExecutor.runStreaming(1, sink -> {
+            for (int i = 0; i < 1000; i++) {
+                read.incrementAndGet();
+                sink.accept(String.valueOf(i));
+            }
+        }, url -> url, item -> {
+            throw new IllegalStateException("client went away");
+        });
+
+        assertThat(completed).isFalse();
+        assertThat(read.get()).isLessThan(1000);
+    }
+
+    private int peakConcurrency(List<String> urls, Integer parallelism) {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        batchExecutor.run(urls, parallelism, url -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(2);
+            running.decrementAndGet();
+            return url;
+        });
+        return peak.get();
+    }
+}
@@ -0,0 +1,78 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HostSchedulerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void limitsConcurrentFetchesPerHost() throws Exception {
+        HostScheduler scheduler = new HostScheduler(2, 0, 100, registry);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(executor.submit(() -> {
+                    try (HostScheduler.Permit permit = scheduler.acquire("https://example.com/page")) {
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        Thread.sleep(20);
+                        inFlight.decrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        }
+
+        assertThat(maxInFlight.get()).isEqualTo(2);
+        assertThat(scheduler.activeFetches()).isZero();
+        assertThat(scheduler.queueDepth()).isZero();
+        assertThat(registry.get("scraper.fetch.wait").timer().count()).isEqualTo(10);
+    }
+
+    @Test
+    void spacesFetchStartsPerHostButNotAcrossHosts() throws Exception {
+        HostScheduler scheduler = new HostScheduler(4, 100, 100, registry);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            scheduler.acquire("https://example.com/" + i).close();
+        }
+        long sameHostMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        scheduler.acquire("https://other.example/").close();
+        long otherHostMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(sameHostMs).isGreaterThanOrEqualTo(200);
+        assertThat(otherHostMs).isLessThan(100);
+    }
+
+    @Test
+    void evictsIdleHosts() throws Exception {
+        HostScheduler scheduler = new HostScheduler(1, 0, 10, registry);
+        HostScheduler.Permit permit = scheduler.acquire("https://example.com/");
+        scheduler.evictIdleHosts();
+        assertThat(registry.get("scraper.fetch.hosts").gauge().value()).isEqualTo(1);
+
+        permit.close();
+        scheduler.evictIdleHosts();
+        assertThat(registry.get("scraper.fetch.hosts").gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,210 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.HttpStatusException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HttpClientPageFetcherTest {
+
+    private static final String PAGE = "<html><head><title>Stub origin</title></head><body><h1>Hello</h1></body></html>";
+
+    private HttpServer server;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final CountDownLatch releaseStalled = new CountDownLatch(1);
+    private final CountDownLatch notGzipAborted = new CountDownLatch(1);
+    private final HttpClientPageFetcher fetcher = new HttpClientPageFetcher(5000, 30000, 2 * 1024 * 1024, true);
+
+    @BeforeEach
+    void startStubOrigin() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/page", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = PAGE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/gzip", exchange -> {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+                gzip.write(PAGE.getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/html");
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, bytes.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                bytes.writeTo(out);
+            }
+        });
+        server.createContext("/etag", exchange -> {
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            fullResponses.incrementAndGet();
+            byte[] body = PAGE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/stall", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "text/html");
+            exchange.sendResponseHeaders(200, 1024);
+            OutputStream out = exchange.getResponseBody();
+            out.write("<html><head><title>Slow".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            try {
+                releaseStalled.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.createContext("/not-gzip", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "text/html");
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, 0);
+            // far more than the client buffers: the write only ends once the client reads or closes the body
+            try (OutputStream out = exchange.getResponseBody()) {
+                byte[] chunk = PAGE.repeat(100).getBytes(StandardCharsets.UTF_8);
+                for (int i = 0; i < 2000; i++) {
+                    out.write(chunk);
+                }
+            } catch (IOException e) {
+                notGzipAborted.countDown();
+            }
+        });
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStubOrigin() {
+        releaseStalled.countDown();
+        server.stop(0);
+        fetcher.shutdown();
+    }
+
+    @Test
+    void repeatedFetchesReuseTheSameConnection() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            try (FetchedPage page = fetcher.fetch(url("/page"))) {
+                assertThat(page.parse().title()).isEqualTo("Stub origin");
+            }
+        }
+
+        assertThat(clientPorts).hasSize(1);
+    }
+
+    @Test
+    void decodesGzipBodies() throws Exception {
+        try (FetchedPage page = fetcher.fetch(url("/gzip"))) {
+            assertThat(page.parse().title()).isEqualTo("Stub origin");
+        }
+    }
+
+    @Test
+    void bodyThatIsNotGzipFailsAndIsClosed() throws Exception {
+        assertThatThrownBy(() -> fetcher.fetch(url("/not-gzip"))).isInstanceOf(ZipException.class);
+
+        assertThat(notGzipAborted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void nonSuccessStatusFailsLikeJsoup() {
+        assertThatThrownBy(() -> fetcher.fetch(url("/missing")))
+                .isInstanceOf(HttpStatusException.class)
+                .hasFieldOrPropertyWithValue("statusCode", 404);
+    }
+
+    @Test
+    void bodyStalledMidwayFailsAtTheTotalDeadline() throws Exception {
+        HttpClientPageFetcher impatient = new HttpClientPageFetcher(5000, 500, 2 * 1024 * 1024, true);
+        long start = System.nanoTime();
+
+        try (FetchedPage page = impatient.fetch(url("/stall"))) {
+            assertThatThrownBy(page::parse).isInstanceOf(HttpTimeoutException.class);
+        } finally {
+            impatient.shutdown();
+        }
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5000);
+    }
+
+    @Test
+    void conditionalFetchReturnsNotModified() throws Exception {
+        try (FetchedPage page = fetcher.fetch(url("/etag"))) {
+            assertThat(page.isNotModified()).isFalse();
+            assertThat(page.getEtag()).isEqualTo("\"v1\"");
+        }
+        try (FetchedPage page = fetcher.fetch(url("/etag"), "\"v1\"", null)) {
+            assertThat(page.isNotModified()).isTrue();
+        }
+    }
+
+    @Test
+    void scraperReusesStoredMetadataOnNotModified() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // 0s TTL: every request revalidates the stored entry
+        ScraperService scraper = new ScraperService(fetcher, new HostScheduler(4, 0, 10, registry),
+                new MetadataCache(0, 3600, 1024 * 1024, registry), registry);
+
+        ScraperMetadata first = scraper.extractMetadata(url("/etag"));
+        ScraperMetadata second = scraper.extractMetadata(url("/etag"));
+
+        assertThat(second).isNotSameAs(first).usingRecursiveComparison().isEqualTo(first);
+        assertThat(fullResponses.get()).isEqualTo(1);
+        assertThat(registry.get("scraper.revalidations").tag("result", "not_modified").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void noStoreNeitherReadsNorWritesTheCache() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MetadataCache cache = new MetadataCache(300, 3600, 1024 * 1024, registry);
+        ScraperService scraper = new ScraperService(fetcher, new HostScheduler(4, 0, 10, registry), cache, registry);
+
+        scraper.extractMetadata(url("/etag"), MetadataField.all(), MetadataCache.Policy.NO_STORE);
+        assertThat(cache.get(url("/etag"), MetadataField.all())).isNull();
+
+        scraper.extractMetadata(url("/etag"));
+        scraper.extractMetadata(url("/etag"), MetadataField.all(), MetadataCache.Policy.NO_STORE);
+
+        // the cached entry was neither served nor revalidated: both no-store requests downloaded the page
+        assertThat(fullResponses.get()).isEqualTo(3);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+}
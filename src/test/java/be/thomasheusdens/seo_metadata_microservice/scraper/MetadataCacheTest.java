@@ -0,0 +1,77 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetadataCacheTest {
+
+    private static final String URL = "https://Example.com:443/page#reviews";
+
+    @Test
+    void normalizesEquivalentUrls() {
+        assertThat(UrlNormalizer.normalize(URL)).isEqualTo("https://example.com/page");
+        assertThat(UrlNormalizer.normalize("HTTP://example.com")).isEqualTo("http://example.com/");
+        assertThat(UrlNormalizer.normalize("http://example.com:8080/a?b=1&a=2"))
+                .isEqualTo("http://example.com:8080/a?b=1&a=2");
+    }
+
+    @Test
+    void hitsOnNormalizedUrlAndSameFields() {
+        MetadataCache cache = new MetadataCache(300, 86400, 1024 * 1024, new SimpleMeterRegistry());
+        ScraperMetadata metadata = metadata();
+        cache.put(URL, MetadataField.all(), metadata, null, null);
+
+        assertThat(cache.get("https://example.com/page", MetadataField.all()).metadata())
+                .usingRecursiveComparison().isEqualTo(metadata);
+        assertThat(cache.get("https://example.com/page", Set.of(MetadataField.TITLE))).isNull();
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsOnceMaxWeightIsExceeded() {
+        MetadataCache cache = new MetadataCache(300, 86400, 20_000, new SimpleMeterRegistry());
+        for (int i = 0; i < 100; i++) {
+            cache.put("https://example.com/" + i, MetadataField.all(), metadata(), null, null);
+        }
+        cache.cleanUp();
+
+        assertThat(cache.stats().evictionCount()).isPositive();
+    }
+
+    @Test
+    void cachedMetadataCantBeChangedThroughTheCallersCopy() {
+        MetadataCache cache = new MetadataCache(300, 86400, 1024 * 1024, new SimpleMeterRegistry());
+        ScraperMetadata metadata = metadata();
+        cache.put(URL, MetadataField.all(), metadata, null, null);
+
+        metadata.setTitle("changed after put");
+        ScraperMetadata served = cache.get(URL, MetadataField.all()).metadata();
+        served.setTitle("changed by a caller");
+        served.getImages().add("https://example.com/injected.png");
+
+        ScraperMetadata again = cache.get(URL, MetadataField.all()).metadata();
+        assertThat(again.getTitle()).isEqualTo("Cached page");
+        assertThat(again.getImages()).isEmpty();
+    }
+
+    @Test
+    void cacheControlSelectsThePolicy() {
+        assertThat(MetadataCache.policy("no-cache")).isEqualTo(MetadataCache.Policy.REVALIDATE);
+        assertThat(MetadataCache.policy("max-age=0, No-Store")).isEqualTo(MetadataCache.Policy.NO_STORE);
+        assertThat(MetadataCache.policy("no-cache, no-store")).isEqualTo(MetadataCache.Policy.NO_STORE);
+        assertThat(MetadataCache.policy("max-age=60")).isEqualTo(MetadataCache.Policy.USE);
+        assertThat(MetadataCache.policy(null)).isEqualTo(MetadataCache.Policy.USE);
+    }
+
+    private static ScraperMetadata metadata() {
+        return MetadataExtractor.extract(URL, Jsoup.parse(
+                "<html><head><title>Cached page</title><meta name=description content='" + "x".repeat(500)
+                        + "'></head><body><h1>Hi</h1></body></html>", URL));
+    }
+}
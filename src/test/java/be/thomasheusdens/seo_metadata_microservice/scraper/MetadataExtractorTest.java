@@ -0,0 +1,250 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetadataExtractorTest {
+
+    private static final String URL = "https://example.com/page";
+
+    static Stream<String> pages() {
+        return Stream.of(
+                "",
+                "<p>Just some text without any head</p>",
+                """
+                <!doctype html>
+                <html lang="en">
+                <head>
+                  <title>  Example   Page | Brand </title>
+                  <meta name="description" content="A description">
+                  <meta name="keywords" content="a, b, c">
+                  <link rel="canonical" href="https://example.com/page">
+                  <meta property="og:title" content="OG title">
+                  <meta property="og:description" content="OG description">
+                  <meta property="og:image" content="https://cdn.example.com/og.jpg">
+                  <link rel="icon" href="/favicon.ico">
+                  <link rel="apple-touch-icon" href="/apple.png">
+                  <link rel="alternate" hreflang="fr" href="https://example.com/fr">
+                  <link rel="alternate" hreflang="nl" href="https://example.com/nl">
+                  <link rel="alternate" href="https://example.com/feed">
+                  <meta name="robots" content="index, follow">
+                  <meta name="viewport" content="width=device-width, initial-scale=1">
+                  <script type="application/ld+json">{"@type":"Organization"}</script>
+                  <script type="application/ld+json">   </script>
+                  <meta name="twitter:title" content="Tw title">
+                  <meta name="twitter:description" content="Tw description">
+                  <meta name="twitter:image" content="https://cdn.example.com/tw.jpg">
+                </head>
+                <body>
+                  <h1>Main <em>heading</em></h1>
+                  <div>One</div>Two<span>three</span><p>four<br>five</p>
+                  <a href="/internal">in</a><a href="HTTPS://other.com">out</a><a href="//cdn.example.com">proto</a>
+                  <a href="#top">anchor</a><a>no href</a>
+                  <img src="/a.png" alt="A"><img src="/b.png"><img alt=" "><img src="/c.png" alt="">
+                </body>
+                </html>
+                """,
+                """
+                <html><head>
+                  <META NAME="Description" CONTENT="Upper case attributes">
+                  <meta name=" robots " content="NOINDEX">
+                  <meta name="description" content="second description is ignored">
+                  <meta name="viewport">
+                  <meta name="viewport" content="width=device-width">
+                  <link rel="ICON">
+                  <link rel="icon" href="">
+                  <link rel="shortcut icon" href="/shortcut.ico">
+                  <link rel="Canonical" href=" /spaced ">
+                  <script type="Application/LD+JSON">{"a":1}</script>
+                </head><body>
+                  <h1></h1><h1>Second <h1>nested</h1></h1>
+                  <meta property="og:title" content="og in body">
+                  <title>title in body</title>
+                  <pre>  keep   spacing
+                  here </pre>
+                  <textarea>a  b</textarea>
+                  <p>non&nbsp;breaking&#8203;zero&shy;width</p>
+                  <pre>pre&nbsp;nbsp</pre>
+                  <p>tab\tand\u000Bvertical</p>
+                </body></html>
+                """,
+                """
+                <html><head><title></title><link rel="shortcut icon" href="/only-shortcut.ico"></head>
+                <body>\u0001 <span>\u0002</span> word <b>bold</b><i>italic</i> \u0003 <div>\u0004</div></body></html>
+                """,
+                """
+                <html><head><title>Frames</title></head>
+                <frameset><frame src="a.html"><frame src="b.html"></frameset></html>
+                """,
+                """
+                <body><table><tr><td>cell one</td><td>cell two</td></tr></table>
+                <ul><li>item</li><li>item <a href="http://x.com">link</a></li></ul>
+                <svg><title>svg title</title></svg><![CDATA[ cdata text ]]>
+                <noscript><img src="/tracking.gif"></noscript></body>
+                """,
+                largePage()
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("pages")
+    void singlePassMatchesSelectorExtraction(String html) {
+        ScraperMetadata expected = selectorExtraction(URL, Jsoup.parse(html, URL));
+        ScraperMetadata actual = MetadataExtractor.extract(URL, Jsoup.parse(html, URL));
+
+        assertThat(actual).usingRecursiveComparison().isEqualTo(expected);
+    }
+
+    @Test
+    void headOnlyExtractionMatchesHeadFieldsAndLeavesBodyFieldsNull() throws IOException {
+        String html = pages().skip(2).findFirst().orElseThrow();
+        ScraperMetadata full = MetadataExtractor.extract(URL, Jsoup.parse(html, URL));
+
+        ScraperMetadata head;
+        try (StreamParser parser = new StreamParser(Parser.htmlParser()).parse(new StringReader(html), URL)) {
+            head = MetadataExtractor.extractHead(URL, parser, MetadataField.all());
+        }
+
+        assertThat(head)
+                .usingRecursiveComparison()
+                .ignoringFields("h1", "jsonLdList", "internalLinksCount", "externalLinksCount",
+                        "images", "missingAltCount", "wordCount")
+                .isEqualTo(full);
+        assertThat(head.getH1()).isNull();
+        assertThat(head.getJsonLdList()).isNull();
+        assertThat(head.getInternalLinksCount()).isNull();
+        assertThat(head.getExternalLinksCount()).isNull();
+        assertThat(head.getImages()).isNull();
+        assertThat(head.getMissingAltCount()).isNull();
+        assertThat(head.getWordCount()).isNull();
+    }
+
+    @Test
+    void headOnlyExtractionStopsReadingAfterHead() throws IOException {
+        String html = largePage().repeat(20);
+        CountingReader reader = new CountingReader(new StringReader(html));
+
+        ScraperMetadata head;
+        try (StreamParser parser = new StreamParser(Parser.htmlParser()).parse(reader, URL)) {
+            head = MetadataExtractor.extractHead(URL, parser, MetadataField.all());
+        }
+
+        assertThat(head.getTitle()).isEqualTo("Catalogue");
+        assertThat(reader.read).isLessThan(html.length() / 10);
+    }
+
+    @Test
+    void projectionOnlyFillsRequestedGroups() {
+        String html = pages().skip(2).findFirst().orElseThrow();
+        ScraperMetadata full = MetadataExtractor.extract(URL, Jsoup.parse(html, URL));
+        ScraperMetadata projected = MetadataExtractor.extract(URL, Jsoup.parse(html, URL),
+                MetadataField.parse("og, robots,links", ExtractionMode.FULL));
+
+        assertThat(projected.getOgTitle()).isEqualTo(full.getOgTitle());
+        assertThat(projected.getOgImage()).isEqualTo(full.getOgImage());
+        assertThat(projected.getRobots()).isEqualTo(full.getRobots());
+        assertThat(projected.getInternalLinksCount()).isEqualTo(full.getInternalLinksCount());
+        assertThat(projected.getExternalLinksCount()).isEqualTo(full.getExternalLinksCount());
+
+        assertThat(projected.getTitle()).isNull();
+        assertThat(projected.getTwitterTitle()).isNull();
+        assertThat(projected.getHreflangs()).isNull();
+        assertThat(projected.getImages()).isNull();
+        assertThat(projected.getWordCount()).isNull();
+    }
+
+    private static class CountingReader extends Reader {
+        private final Reader in;
+        private long read;
+
+        CountingReader(Reader in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) throws IOException {
+            int n = in.read(buf, off, len);
+            if (n > 0) {
+                read += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static String largePage() {
+        StringBuilder html = new StringBuilder("<html><head><title>Catalogue</title></head><body>");
+        for (int i = 0; i < 500; i++) {
+            html.append("<div class=product><h2>Product ").append(i).append("</h2>")
+                    .append("<img src=\"/p/").append(i).append(".jpg\"").append(i % 3 == 0 ? "" : " alt=\"p\"").append(">")
+                    .append("<a href=\"/p/").append(i).append("\">details</a> ")
+                    .append("<a href=\"https://partner.com/").append(i).append("\">buy</a>")
+                    .append("<p>Lorem ipsum dolor sit amet, <b>consectetur</b> adipiscing elit.</p></div>");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    // The selector-per-field extraction that MetadataExtractor replaces, kept as the reference behaviour.
+    private static ScraperMetadata selectorExtraction(String url, Document doc) {
+        String favicon = doc.select("link[rel=icon]").attr("href");
+        if (favicon.isEmpty()) {
+            favicon = doc.select("link[rel=shortcut icon]").attr("href");
+        }
+
+        List<String> hreflangs = doc.select("link[rel=alternate][hreflang]")
+                .stream()
+                .map(el -> el.attr("hreflang") + " -> " + el.attr("href"))
+                .collect(Collectors.toList());
+
+        List<String> jsonLdList = doc.select("script[type=application/ld+json]")
+                .stream()
+                .map(Element::data)
+                .filter(text -> !text.isBlank())
+                .collect(Collectors.toList());
+
+        return new ScraperMetadata(
+                url,
+                doc.title(),
+                doc.select("meta[name=description]").attr("content"),
+                doc.select("link[rel=canonical]").attr("href"),
+                doc.select("meta[name=keywords]").attr("content"),
+                doc.select("meta[property=og:title]").attr("content"),
+                doc.select("meta[property=og:description]").attr("content"),
+                doc.select("meta[property=og:image]").attr("content"),
+                doc.select("h1").text(),
+                favicon,
+                doc.select("link[rel=apple-touch-icon]").attr("href"),
+                hreflangs,
+                doc.select("meta[name=robots]").attr("content"),
+                doc.select("meta[name=viewport]").attr("content"),
+                jsonLdList,
+                doc.select("meta[name=twitter:title]").attr("content"),
+                doc.select("meta[name=twitter:description]").attr("content"),
+                doc.select("meta[name=twitter:image]").attr("content"),
+                doc.select("a[href^='/']").size(),
+                doc.select("a[href^='http']").size(),
+                doc.select("img").eachAttr("src"),
+                doc.select("img").stream().filter(img -> img.attr("alt").isBlank()).count(),
+                doc.body().text().split("\\s+").length
+        );
+    }
+}
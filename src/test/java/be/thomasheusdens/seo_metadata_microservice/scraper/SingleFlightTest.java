@@ -0,0 +1,98 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> flight = new SingleFlight<>("test", registry);
+
+    @Test
+    void concurrentCallersShareOneExecution() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 20; i++) {
+                results.add(executor.submit(() -> flight.run("https://example.com/", () -> {
+                    executions.incrementAndGet();
+                    release.await();
+                    return "metadata";
+                })));
+            }
+            while (registry.get("test.calls").tag("result", "coalesced").counter().count() < 19) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("metadata");
+            }
+        }
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(registry.get("test.calls").tag("result", "executed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void coalescedCallersEachGetTheirOwnCopy() throws Exception {
+        SingleFlight<String, ScraperMetadata> metadataFlight =
+                new SingleFlight<>("copies", registry, ScraperMetadata::copy);
+        CountDownLatch release = new CountDownLatch(1);
+        ScraperMetadata extracted = new ScraperMetadata();
+        extracted.setTitle("Title");
+        extracted.setImages(new ArrayList<>(List.of("/logo.png")));
+
+        List<Future<ScraperMetadata>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> metadataFlight.run("https://example.com/", () -> {
+                    release.await();
+                    return extracted;
+                })));
+            }
+            while (registry.get("copies.calls").tag("result", "coalesced").counter().count() < 2) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            List<ScraperMetadata> handedOut = new ArrayList<>();
+            for (Future<ScraperMetadata> result : results) {
+                handedOut.add(result.get(5, TimeUnit.SECONDS));
+            }
+            List<ScraperMetadata> coalesced = handedOut.stream().filter(metadata -> metadata != extracted).toList();
+
+            assertThat(handedOut).doesNotHaveDuplicates();
+            assertThat(coalesced).hasSize(2).allSatisfy(metadata ->
+                    assertThat(metadata).usingRecursiveComparison().isEqualTo(extracted));
+
+            // the caller that ran the task changes its result; the others don't see it
+            extracted.getImages().add("/banner.png");
+            assertThat(coalesced).allSatisfy(metadata -> assertThat(metadata.getImages()).containsExactly("/logo.png"));
+        }
+    }
+
+    @Test
+    void failureIsSharedAndNotRemembered() throws Exception {
+        assertThatThrownBy(() -> flight.run("key", () -> {
+            throw new IOException("boom");
+        })).isInstanceOf(IOException.class);
+
+        assertThat(flight.run("key", () -> "retried")).isEqualTo("retried");
+    }
+}
@@ -0,0 +1,113 @@
+package be.thomasheusdens.seo_metadata_microservice.scraper;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test of the scrape path on virtual threads: thousands of concurrent extractions against an origin that takes
+ * a second to answer, recorded with JFR. The host limits are lifted so that only threading can be the bottleneck: a
+ * pool of 200 platform threads (Tomcat's default) would need {@code REQUESTS / 200} seconds.
+ * Left out of the default test run; run it with {@code mvn test -Pload-tests}.
+ */
+@Tag("load")
+class SlowOriginLoadTest {
+
+    private static final int REQUESTS = 2000;
+    private static final long ORIGIN_DELAY_MS = 1000;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private String base;
+    private ScraperService scraperService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), REQUESTS);
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(ORIGIN_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("<html><head><title>" + exchange.getRequestURI().getPath() + "</title></head>"
+                    + "<body><h1>Slow page</h1></body></html>").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        // platform threads, so the origin's own threads never show up as virtual-thread events
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        scraperService = new ScraperService(new HttpClientPageFetcher(10000, 30000, 2 * 1024 * 1024, true),
+                new HostScheduler(REQUESTS, 0, REQUESTS, registry),
+                new MetadataCache(300, 86400, 64 * 1024 * 1024, registry), registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void thousandsOfSlowRequestsRunConcurrentlyWithoutPinning() throws Exception {
+        Queue<String> pinned = new ConcurrentLinkedQueue<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            // every park while pinned, not only those above the default 20 ms threshold
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", event -> pinned.add(event.getStackTrace() == null ? "?"
+                    : event.getStackTrace().getFrames().stream().limit(8).map(SlowOriginLoadTest::frame)
+                    .collect(Collectors.joining(" <- "))));
+            recording.startAsync();
+
+            long start = System.nanoTime();
+            List<Future<ScraperMetadata>> results = new ArrayList<>(REQUESTS);
+            try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < REQUESTS; i++) {
+                    String url = base + "/p/" + i;
+                    results.add(requests.submit(() -> scraperService.extractMetadata(url)));
+                }
+                for (int i = 0; i < REQUESTS; i++) {
+                    assertThat(results.get(i).get(60, TimeUnit.SECONDS).getTitle()).isEqualTo("/p/" + i);
+                }
+            }
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            recording.stop();
+
+            // the least a pool of 200 platform threads would take
+            assertThat(elapsed).as("%d requests against a %d ms origin", REQUESTS, ORIGIN_DELAY_MS)
+                    .isLessThan(Duration.ofMillis(REQUESTS / 200 * ORIGIN_DELAY_MS));
+            assertThat(pinned).as("virtual threads parked while pinned").isEmpty();
+        }
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
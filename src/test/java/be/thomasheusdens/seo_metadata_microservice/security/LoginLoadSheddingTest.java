@@ -0,0 +1,114 @@
+package be.thomasheusdens.seo_metadata_microservice.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginLoadSheddingTest {
+
+    @Test
+    void limitsAttemptsPerUserAndPerIp() {
+        LoginAttemptLimiter limiter = new LoginAttemptLimiter(3, 100, 4, 60);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("alice", "10.0.0.1")).isTrue();
+        }
+        assertThat(limiter.tryAcquire("alice", "10.0.0.1")).isFalse();
+        // failures from one address don't lock the user out elsewhere
+        assertThat(limiter.tryAcquire("alice", "10.0.0.2")).isTrue();
+
+        // the rejected attempt above didn't count against the IP: one attempt is left
+        assertThat(limiter.tryAcquire("bob", "10.0.0.1")).isTrue();
+        assertThat(limiter.tryAcquire("bob", "10.0.0.1")).isFalse();
+        assertThat(limiter.tryAcquire("bob", "10.0.0.3")).isTrue();
+    }
+
+    @Test
+    void limitsAttemptsPerUsernameAcrossIps() {
+        LoginAttemptLimiter limiter = new LoginAttemptLimiter(3, 5, 50, 60);
+
+        for (int i = 1; i <= 5; i++) {
+            assertThat(limiter.tryAcquire("alice", "10.0.0." + i)).isTrue();
+        }
+        assertThat(limiter.tryAcquire("alice", "10.0.0.6")).isFalse();
+        assertThat(limiter.tryAcquire("alice", "10.0.0.1")).isFalse();
+
+        // the rejected attempt from 10.0.0.6 didn't use up that IP's budget
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("bob", "10.0.0.6")).isTrue();
+        }
+        // a successful login doesn't clear the attempts made against the account from elsewhere
+        limiter.succeeded("alice", "10.0.0.1");
+        assertThat(limiter.tryAcquire("alice", "10.0.0.1")).isFalse();
+    }
+
+    @Test
+    void successfulLoginClearsTheUsersAttempts() {
+        LoginAttemptLimiter limiter = new LoginAttemptLimiter(3, 100, 50, 60);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("alice", "10.0.0.1")).isTrue();
+        }
+        limiter.succeeded("alice", "10.0.0.1");
+
+        assertThat(limiter.tryAcquire("alice", "10.0.0.1")).isTrue();
+    }
+
+    @Test
+    void rejectsFastWhenHashingQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BlockingEncoder(started, release), 1, 1,
+                registry);
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            // one call holds the only hashing thread, a second one waits in the queue of one
+            Future<Boolean> running = callers.submit(() -> encoder.matches("pw", "pw"));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<Boolean> queued = callers.submit(() -> encoder.matches("pw", "pw"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (registry.get("auth.password.hashing.queue").gauge().value() < 1) {
+                assertThat(System.nanoTime()).isLessThan(deadline);
+                Thread.onSpinWait();
+            }
+
+            assertThatThrownBy(() -> encoder.matches("pw", "pw")).isInstanceOf(PasswordHashingRejectedException.class);
+
+            release.countDown();
+            assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            encoder.close();
+        }
+        assertThat(registry.get("auth.password.hashing.rejected").counter().count()).isEqualTo(1);
+    }
+
+    private record BlockingEncoder(CountDownLatch started, CountDownLatch release) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
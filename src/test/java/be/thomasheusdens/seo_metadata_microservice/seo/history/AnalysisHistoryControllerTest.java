@@ -0,0 +1,81 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.history;
+
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AnalysisHistoryControllerTest {
+
+    private final UsernamePasswordAuthenticationToken alice =
+            new UsernamePasswordAuthenticationToken("alice", null, List.of());
+
+    private AnalysisHistoryService historyService;
+    private UserService userService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        historyService = mock(AnalysisHistoryService.class);
+        userService = mock(UserService.class);
+        when(userService.currentUserId(alice)).thenReturn(7L);
+        mockMvc = MockMvcBuilders.standaloneSetup(new AnalysisHistoryController(historyService, userService)).build();
+    }
+
+    @Test
+    void listsTheCallersHistoryOfAUrl() throws Exception {
+        when(historyService.history(7L, "https://example.com/", 5)).thenReturn(List.of(
+                new AnalysisSummary(3L, "https://example.com/", Instant.parse("2026-10-01T10:00:00Z"),
+                        (short) 4, (short) 1, (short) 0, null)));
+
+        JsonNode body = json(mockMvc.perform(get("/api/seo/history").param("url", "https://example.com/")
+                        .param("limit", "5").principal(alice))
+                .andExpect(status().isOk()));
+
+        assertThat(body.get(0).get("id").asLong()).isEqualTo(3L);
+        assertThat(body.get(0).get("okCount").asInt()).isEqualTo(4);
+    }
+
+    @Test
+    void answersNotFoundWithoutAStoredAnalysis() throws Exception {
+        when(historyService.latest(7L, "https://example.com/")).thenReturn(Optional.empty());
+        when(historyService.findById(7L, 9L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/seo/history/latest").param("url", "https://example.com/").principal(alice))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/seo/history/9").principal(alice))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void aTokenOfADeletedUserIsRejectedAsUnauthenticated() {
+        UsernamePasswordAuthenticationToken gone = new UsernamePasswordAuthenticationToken("gone", null, List.of());
+        when(userService.currentUserId(gone)).thenThrow(new UsernameNotFoundException("Unknown user"));
+
+        assertThatThrownBy(() -> mockMvc.perform(get("/api/seo/history/9").principal(gone)))
+                .hasRootCauseInstanceOf(UsernameNotFoundException.class);
+        verifyNoInteractions(historyService);
+    }
+
+    private static JsonNode json(ResultActions result) throws Exception {
+        return new ObjectMapper().readTree(result.andReturn().getResponse().getContentAsString());
+    }
+}
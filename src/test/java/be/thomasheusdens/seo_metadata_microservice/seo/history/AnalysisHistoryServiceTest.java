@@ -0,0 +1,86 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.history;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.ScraperMetadata;
+import be.thomasheusdens.seo_metadata_microservice.seo.KeyHash;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisService;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoCheck;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalysisHistoryServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private AnalysisResultRepository repository;
+    private AnalysisHistoryService historyService;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(AnalysisResultRepository.class);
+        historyService = new AnalysisHistoryService(repository, new SeoAnalysisService(), objectMapper);
+    }
+
+    @Test
+    void historyLooksUpTheNormalizedUrlWithAClampedLimit() {
+        String hash = KeyHash.of("https://example.com/");
+
+        historyService.history(1L, "HTTPS://Example.com:443", 1000);
+        historyService.history(1L, "https://example.com", 0);
+
+        verify(repository).findHistory(1L, hash, PageRequest.of(0, 200));
+        verify(repository).findHistory(1L, hash, PageRequest.of(0, 1));
+    }
+
+    @Test
+    void latestRebuildsTheReportFromTheStoredMetadataAndFields() throws Exception {
+        ScraperMetadata metadata = new ScraperMetadata();
+        metadata.setUrl("https://example.com/");
+        metadata.setTitle("A title that is long enough to pass the length check");
+        AnalysisResult stored = stored(9L, objectMapper.writeValueAsString(metadata), "TITLE");
+        when(repository.findFirstByUserIdAndUrlHashOrderByAnalyzedAtDesc(1L, KeyHash.of("https://example.com/")))
+                .thenReturn(Optional.of(stored));
+
+        AnalysisReport report = historyService.latest(1L, "https://example.com").orElseThrow();
+
+        assertThat(report.getId()).isEqualTo(9L);
+        assertThat(report.getResult().getChecks()).extracting(SeoCheck::getLabel, SeoCheck::getStatus)
+                .containsExactly(tuple("Title Tag", "OK"));
+    }
+
+    @Test
+    void findByIdOnlyReturnsTheCallersAnalyses() {
+        when(repository.findByIdAndUserId(9L, 2L)).thenReturn(Optional.empty());
+
+        assertThat(historyService.findById(2L, 9L)).isEmpty();
+    }
+
+    @Test
+    void unreadableStoredMetadataFails() {
+        when(repository.findByIdAndUserId(9L, 1L)).thenReturn(Optional.of(stored(9L, "{not json", "TITLE")));
+
+        assertThatThrownBy(() -> historyService.findById(1L, 9L))
+                .hasMessageContaining("Stored analysis 9 cannot be read");
+    }
+
+    private static AnalysisResult stored(Long id, String metadata, String fields) {
+        AnalysisResult stored = new AnalysisResult();
+        ReflectionTestUtils.setField(stored, "id", id);
+        ReflectionTestUtils.setField(stored, "analyzedAt", Instant.parse("2026-10-01T10:00:00Z"));
+        ReflectionTestUtils.setField(stored, "fields", fields);
+        ReflectionTestUtils.setField(stored, "metadata", metadata);
+        return stored;
+    }
+}
@@ -0,0 +1,294 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.history;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataField;
+import be.thomasheusdens.seo_metadata_microservice.scraper.ScraperMetadata;
+import be.thomasheusdens.seo_metadata_microservice.seo.KeyHash;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisResult;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisService;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoCheck;
+import be.thomasheusdens.seo_metadata_microservice.seo.trends.TrendRollupUpdater;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisResultWriterTest {
+
+    private final SeoAnalysisService analysisService = new SeoAnalysisService();
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE analysis_results (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT NOT NULL, "
+                + "url VARCHAR(2048) NOT NULL, url_hash VARCHAR(64) NOT NULL, analyzed_at TIMESTAMP NOT NULL, "
+                + "fields VARCHAR(255) NOT NULL, ok_count SMALLINT NOT NULL, warning_count SMALLINT NOT NULL, "
+                + "critical_count SMALLINT NOT NULL, metadata CLOB NOT NULL, "
+                + CheckStatuses.GROUPS.stream().map(group -> CheckStatuses.column(group) + " TINYINT")
+                        .collect(Collectors.joining(", "))
+                + ")");
+        jdbcTemplate.execute("CREATE TABLE analysis_rollups (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT NOT NULL, "
+                + "scope VARCHAR(8) NOT NULL, key_hash VARCHAR(64) NOT NULL, granularity VARCHAR(8) NOT NULL, "
+                + "period_start DATE NOT NULL, analyses INT NOT NULL, ok_count BIGINT NOT NULL, warning_count BIGINT NOT NULL, "
+                + "critical_count BIGINT NOT NULL, "
+                + "CONSTRAINT uk_analysis_rollups_bucket UNIQUE (user_id, scope, key_hash, granularity, period_start))");
+    }
+
+    @Test
+    void flushWritesNormalizedUrlCountsAndWorstStatusPerGroup() {
+        AnalysisResultWriter writer = writer(10);
+        ScraperMetadata metadata = new ScraperMetadata();
+        metadata.setWordCount(500);
+        Set<MetadataField> fields = Set.of(MetadataField.TITLE, MetadataField.CONTENT);
+
+        writer.submit(1L, "HTTPS://Example.com", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.flush();
+
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT * FROM analysis_results");
+        assertThat(row.get("URL")).isEqualTo("https://example.com/");
+        assertThat(row.get("URL_HASH")).isEqualTo(KeyHash.of("https://example.com/"));
+        assertThat(((Number) row.get("CRITICAL_COUNT")).intValue()).isEqualTo(1);
+        assertThat(((Number) row.get("TITLE_STATUS")).intValue()).isEqualTo(2);
+        assertThat(((Number) row.get("CONTENT_STATUS")).intValue()).isZero();
+        assertThat(row.get("OG_STATUS")).isNull();
+    }
+
+    @Test
+    void groupStatusesComeFromTheSubmittedChecks() {
+        AnalysisResultWriter writer = writer(10);
+        // an empty page: analysing it again would give a critical title
+        ScraperMetadata metadata = new ScraperMetadata();
+        Set<MetadataField> fields = Set.of(MetadataField.TITLE, MetadataField.OG);
+        SeoAnalysisResult result = new SeoAnalysisResult(null, List.of(
+                SeoCheck.ok("Title Tag", "ok"),
+                SeoCheck.ok("OG Title", "ok"),
+                SeoCheck.warning("OG Image", "missing", null, null)));
+
+        writer.submit(1L, "https://example.com/", fields, metadata, result);
+        writer.flush();
+
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT * FROM analysis_results");
+        assertThat(((Number) row.get("TITLE_STATUS")).intValue()).isZero();
+        assertThat(((Number) row.get("OG_STATUS")).intValue()).isEqualTo(1);
+    }
+
+    @Test
+    void everyCheckBelongsToTheGroupWhoseRulesProducedIt() {
+        ScraperMetadata empty = barePage();
+
+        for (MetadataField group : CheckStatuses.GROUPS) {
+            assertThat(analysisService.analyze(empty, EnumSet.of(group)).getChecks())
+                    .as(group.name())
+                    .isNotEmpty()
+                    .allSatisfy(check -> assertThat(SeoAnalysisService.groupOf(check)).isEqualTo(group));
+        }
+    }
+
+    @Test
+    void flushesAccumulateIntoTheRollupsOfUrlAndHost() {
+        AnalysisResultWriter writer = writer(10);
+        ScraperMetadata metadata = barePage();
+        Set<MetadataField> fields = MetadataField.all();
+        int critical = criticalCount(analysisService.analyze(metadata, fields));
+
+        writer.submit(1L, "https://example.com/a", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.submit(1L, "https://example.com/b", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.flush();
+        writer.submit(1L, "https://example.com/a", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.flush();
+
+        assertThat(rollup("URL", "https://example.com/a")).containsExactly(2, 2 * critical);
+        assertThat(rollup("HOST", "example.com")).containsExactly(3, 3 * critical);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM analysis_rollups", Integer.class))
+                .isEqualTo(2 * 3);
+    }
+
+    @Test
+    void onlyAnalysesOfEveryGroupAreRolledUp() {
+        AnalysisResultWriter writer = writer(10);
+        ScraperMetadata metadata = barePage();
+        int critical = criticalCount(analysisService.analyze(metadata, MetadataField.all()));
+
+        writer.submit(1L, "https://example.com/a", MetadataField.all(), metadata,
+                analysisService.analyze(metadata, MetadataField.all()));
+        writer.submit(1L, "https://example.com/a", Set.of(MetadataField.ROBOTS), metadata,
+                analysisService.analyze(metadata, Set.of(MetadataField.ROBOTS)));
+        writer.flush();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM analysis_results", Integer.class)).isEqualTo(2);
+        assertThat(rollup("URL", "https://example.com/a")).containsExactly(1, critical);
+    }
+
+    @Test
+    void rollupFailureKeepsTheStoredAnalyses() {
+        AnalysisResultWriter writer = writer(10);
+        ScraperMetadata metadata = new ScraperMetadata();
+        Set<MetadataField> fields = Set.of(MetadataField.TITLE);
+        jdbcTemplate.execute("DROP TABLE analysis_rollups");
+
+        writer.submit(1L, "https://example.com/a", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.flush();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM analysis_results", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void submitDropsResultsWhenTheQueueIsFull() {
+        AnalysisResultWriter writer = writer(1);
+        ScraperMetadata metadata = new ScraperMetadata();
+        Set<MetadataField> fields = Set.of(MetadataField.TITLE);
+
+        assertThat(writer.submit(1L, "https://a.test/", fields, metadata, analysisService.analyze(metadata, fields))).isTrue();
+        assertThat(writer.submit(1L, "https://b.test/", fields, metadata, analysisService.analyze(metadata, fields))).isFalse();
+        writer.flush();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM analysis_results", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void overLongUrlsAreDroppedWithoutTheirBatch() {
+        AnalysisResultWriter writer = writer(10);
+        ScraperMetadata metadata = new ScraperMetadata();
+        Set<MetadataField> fields = Set.of(MetadataField.TITLE);
+        String tooLong = "https://example.com/" + "a".repeat(AnalysisResult.MAX_URL_LENGTH);
+
+        writer.submit(1L, "https://example.com/a", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.submit(2L, tooLong, fields, metadata, analysisService.analyze(metadata, fields));
+        writer.submit(3L, "https://example.com/b", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.flush();
+
+        assertThat(jdbcTemplate.queryForList("SELECT user_id FROM analysis_results ORDER BY id", Long.class))
+                .containsExactly(1L, 3L);
+    }
+
+    @Test
+    void aRowTheDatabaseRejectsIsDroppedAndTheRestOfTheBatchIsStored() {
+        AnalysisResultWriter writer = writer(10);
+        ScraperMetadata metadata = barePage();
+        Set<MetadataField> fields = MetadataField.all();
+        int critical = criticalCount(analysisService.analyze(metadata, fields));
+        jdbcTemplate.execute("ALTER TABLE analysis_results ALTER COLUMN url VARCHAR(30)");
+
+        writer.submit(1L, "https://example.com/a", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.submit(2L, "https://example.com/" + "b".repeat(20), fields, metadata, analysisService.analyze(metadata, fields));
+        writer.submit(3L, "https://example.com/c", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.flush();
+
+        assertThat(jdbcTemplate.queryForList("SELECT user_id FROM analysis_results ORDER BY id", Long.class))
+                .containsExactly(1L, 3L);
+        assertThat(rollup("HOST", "example.com")).containsExactly(2, 2 * critical);
+    }
+
+    @Test
+    void resultsStayQueuedWhileTheDatabaseIsDown() {
+        AnalysisResultWriter writer = writer(10);
+        ScraperMetadata metadata = new ScraperMetadata();
+        Set<MetadataField> fields = Set.of(MetadataField.TITLE);
+        jdbcTemplate.execute("ALTER TABLE analysis_results RENAME TO analysis_results_offline");
+
+        writer.submit(1L, "https://example.com/a", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.submit(2L, "https://example.com/b", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.submit(3L, "https://example.com/c", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.flush();
+        writer.flush();
+        jdbcTemplate.execute("ALTER TABLE analysis_results_offline RENAME TO analysis_results");
+        writer.submit(4L, "https://example.com/d", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.flush();
+
+        assertThat(jdbcTemplate.queryForList("SELECT user_id FROM analysis_results ORDER BY id", Long.class))
+                .containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void rowsRejectedWithoutAnIntegrityErrorDoNotStallTheWriter() {
+        // fails rows of poisoned URLs like MySQL does on a string it can't store (error 1366)
+        JdbcTemplate poisoning = new JdbcTemplate(dataSource) {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                if (batchArgs.stream().anyMatch(args -> poisoned(args))) {
+                    throw new UncategorizedSQLException("batch", sql, new SQLException("Incorrect string value", "HY000", 1366));
+                }
+                return super.batchUpdate(sql, batchArgs);
+            }
+
+            @Override
+            public int update(String sql, Object... args) {
+                if (poisoned(args)) {
+                    throw new UncategorizedSQLException("insert", sql, new SQLException("Incorrect string value", "HY000", 1366));
+                }
+                return super.update(sql, args);
+            }
+
+            private boolean poisoned(Object[] args) {
+                return args.length > 1 && String.valueOf(args[1]).contains("poison");
+            }
+        };
+        AnalysisResultWriter writer = writer(poisoning, 10);
+        ScraperMetadata metadata = new ScraperMetadata();
+        Set<MetadataField> fields = Set.of(MetadataField.TITLE);
+
+        writer.submit(1L, "https://example.com/poison-1", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.submit(2L, "https://example.com/poison-2", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.submit(3L, "https://example.com/a", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.flush();
+        writer.submit(4L, "https://example.com/poison-3", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.flush();
+        writer.submit(5L, "https://example.com/b", fields, metadata, analysisService.analyze(metadata, fields));
+        writer.flush();
+
+        assertThat(jdbcTemplate.queryForList("SELECT user_id FROM analysis_results ORDER BY id", Long.class))
+                .containsExactly(3L, 5L);
+    }
+
+    // a page without any metadata, as the extractor returns it
+    private static ScraperMetadata barePage() {
+        ScraperMetadata empty = new ScraperMetadata();
+        empty.setRobots("");
+        empty.setHreflangs(List.of());
+        empty.setJsonLdList(List.of());
+        empty.setImages(List.of());
+        empty.setInternalLinksCount(0);
+        empty.setExternalLinksCount(0);
+        empty.setMissingAltCount(0L);
+        empty.setWordCount(0);
+        return empty;
+    }
+
+    private static int criticalCount(SeoAnalysisResult result) {
+        return (int) result.getChecks().stream().filter(check -> "CRITICAL".equals(check.getStatus())).count();
+    }
+
+    // analyses and critical count of today's DAY bucket
+    private List<Integer> rollup(String scope, String key) {
+        return jdbcTemplate.queryForObject("SELECT analyses, critical_count FROM analysis_rollups "
+                        + "WHERE scope = ? AND key_hash = ? AND granularity = 'DAY'",
+                (rs, i) -> List.of(rs.getInt(1), rs.getInt(2)), scope, KeyHash.of(key));
+    }
+
+    private AnalysisResultWriter writer(int capacity) {
+        return writer(jdbcTemplate, capacity);
+    }
+
+    private AnalysisResultWriter writer(JdbcTemplate jdbcTemplate, int capacity) {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        return new AnalysisResultWriter(jdbcTemplate, transactionManager,
+                new TrendRollupUpdater(jdbcTemplate, transactionManager), new ObjectMapper(), capacity,
+                new SimpleMeterRegistry());
+    }
+}
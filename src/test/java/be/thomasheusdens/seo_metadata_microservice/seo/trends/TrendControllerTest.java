@@ -0,0 +1,68 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.trends;
+
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TrendControllerTest {
+
+    private final UsernamePasswordAuthenticationToken alice =
+            new UsernamePasswordAuthenticationToken("alice", null, List.of());
+
+    private TrendService trendService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        trendService = mock(TrendService.class);
+        UserService userService = mock(UserService.class);
+        when(userService.currentUserId(alice)).thenReturn(7L);
+        mockMvc = MockMvcBuilders.standaloneSetup(new TrendController(trendService, userService)).build();
+    }
+
+    @Test
+    void returnsTheTrendOfTheCallersHost() throws Exception {
+        when(trendService.trend(7L, TrendScope.HOST, "example.com", TrendGranularity.WEEK, 30))
+                .thenReturn(List.of(new TrendPoint(LocalDate.of(2026, 10, 12), 4, 10, 2, 2)));
+
+        JsonNode body = json(mockMvc.perform(get("/api/seo/trends").param("host", "example.com")
+                        .param("granularity", "WEEK").param("days", "30").principal(alice))
+                .andExpect(status().isOk()));
+
+        assertThat(body.get(0).get("analyses").asInt()).isEqualTo(4);
+        assertThat(body.get(0).get("averageCritical").asDouble()).isEqualTo(0.5);
+    }
+
+    @Test
+    void requiresExactlyOneOfUrlAndHost() throws Exception {
+        mockMvc.perform(get("/api/seo/trends").principal(alice))
+                .andExpect(status().isBadRequest());
+        JsonNode body = json(mockMvc.perform(get("/api/seo/trends").param("url", "https://example.com/")
+                        .param("host", "example.com").principal(alice))
+                .andExpect(status().isBadRequest()));
+
+        assertThat(body.get("message").asText()).isEqualTo("Pass either url or host");
+
+        verifyNoInteractions(trendService);
+    }
+
+    private static JsonNode json(ResultActions result) throws Exception {
+        return new ObjectMapper().readTree(result.andReturn().getResponse().getContentAsString());
+    }
+}
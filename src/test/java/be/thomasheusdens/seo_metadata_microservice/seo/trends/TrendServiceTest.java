@@ -0,0 +1,60 @@
+package be.thomasheusdens.seo_metadata_microservice.seo.trends;
+
+import be.thomasheusdens.seo_metadata_microservice.seo.KeyHash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TrendServiceTest {
+
+    private TrendRollupRepository repository;
+    private TrendService trendService;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(TrendRollupRepository.class);
+        trendService = new TrendService(repository);
+    }
+
+    @Test
+    void urlTrendLooksUpTheHashOfTheNormalizedUrl() {
+        TrendPoint point = new TrendPoint(LocalDate.now(ZoneOffset.UTC), 2, 3, 1, 1);
+        when(repository.findTrend(any(), any(), any(), any(), any())).thenReturn(List.of(point));
+
+        List<TrendPoint> trend = trendService.trend(1L, TrendScope.URL, "HTTPS://Example.com", TrendGranularity.DAY, 30);
+
+        assertThat(trend).containsExactly(point);
+        assertThat(point.getAverageCritical()).isEqualTo(0.5);
+        verify(repository).findTrend(1L, TrendScope.URL, KeyHash.of("https://example.com/"),
+                TrendGranularity.DAY, LocalDate.now(ZoneOffset.UTC).minusDays(29));
+    }
+
+    @Test
+    void hostTrendIsCaseInsensitive() {
+        trendService.trend(1L, TrendScope.HOST, " Example.COM ", TrendGranularity.DAY, 1);
+
+        verify(repository).findTrend(1L, TrendScope.HOST, KeyHash.of("example.com"),
+                TrendGranularity.DAY, LocalDate.now(ZoneOffset.UTC));
+    }
+
+    @Test
+    void weeklyTrendStartsOnAMondayAndDaysAreClamped() {
+        trendService.trend(1L, TrendScope.HOST, "example.com", TrendGranularity.WEEK, 100_000);
+
+        LocalDate from = LocalDate.now(ZoneOffset.UTC).minusDays(729)
+                .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        verify(repository).findTrend(eq(1L), eq(TrendScope.HOST), any(), eq(TrendGranularity.WEEK), eq(from));
+    }
+}
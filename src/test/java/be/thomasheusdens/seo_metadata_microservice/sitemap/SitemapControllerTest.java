@@ -0,0 +1,81 @@
+package be.thomasheusdens.seo_metadata_microservice.sitemap;
+
+import be.thomasheusdens.seo_metadata_microservice.crawler.CrawlSlots;
+import be.thomasheusdens.seo_metadata_microservice.user.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SitemapControllerTest {
+
+    private final UsernamePasswordAuthenticationToken alice =
+            new UsernamePasswordAuthenticationToken("alice", null, List.of());
+
+    private SitemapService sitemapService;
+    private CrawlSlots crawlSlots;
+    private SitemapController controller;
+
+    @BeforeEach
+    void setUp() {
+        sitemapService = mock(SitemapService.class);
+        when(sitemapService.sitemapUrl(any())).thenReturn("https://example.com/sitemap.xml");
+        when(sitemapService.maxUrls(any())).thenReturn(100);
+        crawlSlots = new CrawlSlots(4, 1);
+        controller = new SitemapController(sitemapService, mock(UserService.class), crawlSlots);
+    }
+
+    @Test
+    void rejectsASitemapRunAboveTheUsersLimit() throws Exception {
+        CountDownLatch finish = new CountDownLatch(1);
+        when(sitemapService.analyze(any(), any(), anyInt(), any(), any(), any())).thenAnswer(invocation -> {
+            finish.await();
+            return null;
+        });
+
+        ResponseEntity<SseEmitter> running = controller.analyzeSitemap(request(), alice);
+        ResponseEntity<SseEmitter> rejected = controller.analyzeSitemap(request(), alice);
+
+        assertThat(running.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected.getBody()).isNull();
+        // crawls and sitemap runs share the user's slots
+        assertThat(crawlSlots.tryAcquire("alice")).isEmpty();
+
+        finish.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (crawlSlots.running() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(crawlSlots.running()).isZero();
+    }
+
+    @Test
+    void invalidRequestTakesNoSlot() {
+        when(sitemapService.sitemapUrl(any())).thenThrow(new IllegalArgumentException("Invalid URL"));
+
+        assertThatThrownBy(() -> controller.analyzeSitemap(request(), alice))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(crawlSlots.running()).isZero();
+    }
+
+    private static SitemapRequest request() {
+        SitemapRequest request = new SitemapRequest();
+        request.setUrl("https://example.com");
+        return request;
+    }
+}
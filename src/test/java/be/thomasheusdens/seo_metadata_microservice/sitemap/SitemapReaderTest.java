@@ -0,0 +1,115 @@
+package be.thomasheusdens.seo_metadata_microservice.sitemap;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SitemapReaderTest {
+
+    private final List<String> urls = new ArrayList<>();
+    private final List<String> sitemaps = new ArrayList<>();
+
+    @Test
+    void readsOnlyTheLocOfEachUrl() throws Exception {
+        read(xml("""
+                <urlset xmlns="http://www.sitemaps.org/schemas/sitemap/0.9"
+                        xmlns:image="http://www.google.com/schemas/sitemap-image/1.1">
+                  <url>
+                    <loc> https://shop.example/a </loc>
+                    <lastmod>2025-01-01</lastmod>
+                    <image:image><image:loc>https://cdn.example/a.jpg</image:loc></image:image>
+                  </url>
+                  <url><loc>https://shop.example/b?x=1&amp;y=2</loc></url>
+                </urlset>"""), Integer.MAX_VALUE);
+
+        assertThat(urls).containsExactly("https://shop.example/a", "https://shop.example/b?x=1&y=2");
+        assertThat(sitemaps).isEmpty();
+    }
+
+    @Test
+    void readsGzippedSitemapIndexes() throws Exception {
+        read(gzip(xml("""
+                <sitemapindex xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+                  <sitemap><loc>https://shop.example/sitemap-1.xml.gz</loc></sitemap>
+                  <sitemap><loc>https://shop.example/sitemap-2.xml</loc></sitemap>
+                </sitemapindex>""")), Integer.MAX_VALUE);
+
+        assertThat(sitemaps)
+                .containsExactly("https://shop.example/sitemap-1.xml.gz", "https://shop.example/sitemap-2.xml");
+        assertThat(urls).isEmpty();
+    }
+
+    @Test
+    void stopsWhenTheHandlerSaysSo() throws Exception {
+        StringBuilder body = new StringBuilder("<urlset>");
+        for (int i = 0; i < 100; i++) {
+            body.append("<url><loc>https://shop.example/p/").append(i).append("</loc></url>");
+        }
+        read(xml(body.append("</urlset>").toString()), 10);
+
+        assertThat(urls).hasSize(10);
+    }
+
+    @Test
+    void rejectsDoctypesAndOtherDocuments() {
+        assertThatThrownBy(() -> read(xml("""
+                <!DOCTYPE urlset [<!ENTITY secret SYSTEM "file:///etc/passwd">]>
+                <urlset><url><loc>&secret;</loc></url></urlset>"""), Integer.MAX_VALUE))
+                .isInstanceOf(XMLStreamException.class);
+        assertThatThrownBy(() -> read(xml("<html><body>Not found</body></html>"), Integer.MAX_VALUE))
+                .isInstanceOf(XMLStreamException.class);
+        assertThat(urls).isEmpty();
+    }
+
+    @Test
+    void failsWhenTheDecompressedSitemapIsTooLarge() {
+        StringBuilder body = new StringBuilder("<urlset>");
+        body.append(" ".repeat(1 << 20)).append("</urlset>");
+
+        assertThatThrownBy(() -> SitemapReader.read(gzip(xml(body.toString())), 64 * 1024, handler(Integer.MAX_VALUE)))
+                .hasMessageContaining("larger than 65536 bytes");
+    }
+
+    private void read(InputStream in, int maxUrls) throws Exception {
+        SitemapReader.read(in, 0, handler(maxUrls));
+    }
+
+    private SitemapReader.Handler handler(int maxUrls) {
+        return new SitemapReader.Handler() {
+            @Override
+            public boolean url(String loc) {
+                urls.add(loc);
+                return urls.size() < maxUrls;
+            }
+
+            @Override
+            public void sitemap(String loc) {
+                sitemaps.add(loc);
+            }
+        };
+    }
+
+    private static InputStream xml(String body) {
+        return new ByteArrayInputStream(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + body)
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream gzip(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            in.transferTo(gzip);
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+}
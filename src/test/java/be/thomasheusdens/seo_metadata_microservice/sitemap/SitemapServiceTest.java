@@ -0,0 +1,256 @@
+package be.thomasheusdens.seo_metadata_microservice.sitemap;
+
+import be.thomasheusdens.seo_metadata_microservice.scraper.BatchExecutor;
+import be.thomasheusdens.seo_metadata_microservice.scraper.BatchItem;
+import be.thomasheusdens.seo_metadata_microservice.scraper.HostScheduler;
+import be.thomasheusdens.seo_metadata_microservice.scraper.HttpClientPageFetcher;
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataCache;
+import be.thomasheusdens.seo_metadata_microservice.scraper.MetadataField;
+import be.thomasheusdens.seo_metadata_microservice.scraper.ScraperService;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisResult;
+import be.thomasheusdens.seo_metadata_microservice.seo.SeoAnalysisService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SitemapServiceTest {
+
+    private static final int PAGES = 300;
+
+    private HttpServer server;
+    private String base;
+    private SitemapService sitemapService;
+    private HttpClientPageFetcher fetcher;
+    private HostScheduler hostScheduler;
+    private ScraperService scraperService;
+    private BatchExecutor batchExecutor;
+    private final AtomicLong sitemapSentAt = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong firstPageAt = new AtomicLong(Long.MAX_VALUE);
+    private final CountDownLatch releaseStalled = new CountDownLatch(1);
+
+    // Stub site: /sitemap.xml is an index of a gzipped sitemap (pages 0-199), a plain one (200-299), a missing one
+    // and one on another host; /slow.xml pauses before its closing tag, /stalled.xml never ends
+    @BeforeEach
+    void startStubSite() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        server.createContext("/sitemap.xml", exchange -> send(exchange, "application/xml", xml("""
+                <sitemapindex xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+                  <sitemap><loc>%1$s/sitemap-pages.xml.gz</loc></sitemap>
+                  <sitemap><loc>%1$s/sitemap-posts.xml</loc></sitemap>
+                  <sitemap><loc>%1$s/sitemap-missing.xml</loc></sitemap>
+                  <sitemap><loc>http://elsewhere.test/sitemap.xml</loc></sitemap>
+                </sitemapindex>""".formatted(base))));
+        server.createContext("/sitemap-pages.xml.gz", exchange ->
+                send(exchange, "application/x-gzip", gzip(xml(urlset(0, 200)))));
+        server.createContext("/sitemap-posts.xml", exchange -> send(exchange, "text/xml", xml(urlset(200, PAGES))));
+        server.createContext("/sitemap-missing.xml", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.createContext("/slow.xml", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/xml");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(unterminated(urlset(0, 20)));
+                out.flush();
+                sleep(300);
+                out.write("</urlset>".getBytes(StandardCharsets.UTF_8));
+            }
+            sitemapSentAt.set(System.nanoTime());
+        });
+        server.createContext("/stalled.xml", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/xml");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            out.write(unterminated(urlset(0, 5)));
+            out.flush();
+            try {
+                releaseStalled.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.createContext("/p/", exchange -> {
+            firstPageAt.accumulateAndGet(System.nanoTime(), Math::min);
+            send(exchange, "text/html",
+                    "<html><head><title>Page</title></head><body></body></html>".getBytes(StandardCharsets.UTF_8));
+        });
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        fetcher = new HttpClientPageFetcher(5000, 30000, 2 * 1024 * 1024, true);
+        hostScheduler = new HostScheduler(4, 0, 256, registry);
+        scraperService = new ScraperService(fetcher, hostScheduler,
+                new MetadataCache(300, 86400, 64 * 1024 * 1024, registry), registry);
+        batchExecutor = new BatchExecutor();
+        ReflectionTestUtils.setField(batchExecutor, "defaultParallelism", 8);
+        ReflectionTestUtils.setField(batchExecutor, "maxParallelism", 32);
+
+        sitemapService = sitemapService(30_000);
+    }
+
+    @AfterEach
+    void stopStubSite() {
+        releaseStalled.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void analysesEveryUrlOfTheSitemapIndex() throws Exception {
+        List<BatchItem<SeoAnalysisResult>> items = new CopyOnWriteArrayList<>();
+
+        String sitemapUrl = sitemapService.sitemapUrl(base + "/");
+        SitemapSummary summary = sitemapService.analyze(sitemapUrl, MetadataField.all(), 50000, null, null, items::add);
+
+        assertThat(sitemapUrl).isEqualTo(base + "/sitemap.xml");
+        assertThat(items).hasSize(PAGES).allSatisfy(item -> assertThat(item.getError()).isNull());
+        assertThat(summary.getUrlsAnalyzed()).isEqualTo(PAGES);
+        assertThat(summary.getSitemapsRead()).isEqualTo(3);
+        assertThat(summary.getFailedSitemaps()).containsOnlyKeys(base + "/sitemap-missing.xml");
+        assertThat(summary.getUrlsSkipped()).isEqualTo(1);
+        assertThat(summary.isTruncated()).isFalse();
+    }
+
+    @Test
+    void followsTheHostTheSitemapRedirectsTo() throws Exception {
+        // stands in for example.com redirecting to www.example.com: another authority, same site
+        HttpServer bare = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        bare.createContext("/", exchange -> {
+            exchange.getResponseHeaders().set("Location", base + exchange.getRequestURI().getPath());
+            exchange.sendResponseHeaders(301, -1);
+            exchange.close();
+        });
+        bare.start();
+        try {
+            List<BatchItem<SeoAnalysisResult>> items = new CopyOnWriteArrayList<>();
+
+            String sitemapUrl = sitemapService.sitemapUrl("http://127.0.0.1:" + bare.getAddress().getPort());
+            SitemapSummary summary = sitemapService.analyze(sitemapUrl, MetadataField.all(), 50000, null, null,
+                    items::add);
+
+            assertThat(summary.getUrlsAnalyzed()).isEqualTo(PAGES);
+            assertThat(summary.getSitemapsRead()).isEqualTo(3);
+            assertThat(summary.getUrlsSkipped()).isEqualTo(1);
+        } finally {
+            bare.stop(0);
+        }
+    }
+
+    @Test
+    void urlsOnOtherHostsAreSkipped() throws Exception {
+        server.createContext("/mixed.xml", exchange -> send(exchange, "application/xml", xml("""
+                <urlset xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+                  <url><loc>%1$s/p/1</loc></url>
+                  <url><loc>http://elsewhere.test/p/2</loc></url>
+                  <url><loc>%1$s/p/3</loc></url>
+                  <url><loc>ftp://127.0.0.1/p/4</loc></url>
+                </urlset>""".formatted(base))));
+        List<BatchItem<SeoAnalysisResult>> items = new CopyOnWriteArrayList<>();
+
+        SitemapSummary summary = sitemapService.analyze(base + "/mixed.xml", MetadataField.all(), 50, null, null,
+                items::add);
+
+        assertThat(items).extracting(BatchItem::getUrl).containsExactlyInAnyOrder(base + "/p/1", base + "/p/3");
+        assertThat(summary.getUrlsSkipped()).isEqualTo(2);
+    }
+
+    @Test
+    void sitemapIsFullyReadAndClosedBeforeItsPagesAreAnalysed() throws Exception {
+        List<BatchItem<SeoAnalysisResult>> items = new CopyOnWriteArrayList<>();
+
+        sitemapService.analyze(base + "/slow.xml", MetadataField.all(), 50, null, null, items::add);
+
+        assertThat(items).hasSize(20);
+        assertThat(firstPageAt.get()).isGreaterThanOrEqualTo(sitemapSentAt.get());
+    }
+
+    @Test
+    void stalledSitemapFailsAtTheReadTimeoutAndItsUrlsAreStillAnalysed() throws Exception {
+        List<BatchItem<SeoAnalysisResult>> items = new CopyOnWriteArrayList<>();
+
+        SitemapSummary summary = sitemapService(500).analyze(base + "/stalled.xml", MetadataField.all(), 50, null,
+                null, items::add);
+
+        assertThat(summary.getFailedSitemaps()).containsOnlyKeys(base + "/stalled.xml");
+        assertThat(items).hasSize(5);
+    }
+
+    @Test
+    void stopsReadingAtMaxUrls() throws Exception {
+        List<BatchItem<SeoAnalysisResult>> items = new CopyOnWriteArrayList<>();
+
+        SitemapSummary summary = sitemapService.analyze(base + "/sitemap.xml", MetadataField.all(), 50, 4, null,
+                items::add);
+
+        assertThat(items).hasSize(50);
+        assertThat(summary.isTruncated()).isTrue();
+    }
+
+    private SitemapService sitemapService(long readTimeoutMs) {
+        return new SitemapService(fetcher, hostScheduler, batchExecutor, scraperService, new SeoAnalysisService(),
+                null, 50000, 1000000, 1000, 64 * 1024 * 1024, readTimeoutMs);
+    }
+
+    // the sitemap without its closing tag
+    private byte[] unterminated(String urlset) {
+        return xml(urlset.substring(0, urlset.length() - "</urlset>".length()));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String urlset(int from, int to) {
+        StringBuilder body = new StringBuilder("<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">");
+        for (int i = from; i < to; i++) {
+            body.append("<url><loc>http://127.0.0.1:PORT/p/").append(i).append("</loc></url>");
+        }
+        return body.append("</urlset>").toString();
+    }
+
+    private byte[] xml(String body) {
+        return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + body.replace("http://127.0.0.1:PORT", base))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static void send(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
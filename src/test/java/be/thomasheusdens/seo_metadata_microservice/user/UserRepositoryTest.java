@@ -0,0 +1,99 @@
+package be.thomasheusdens.seo_metadata_microservice.user;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private UserService userService;
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Role admin = new Role("ROLE_ADMIN");
+        Role user = new Role("ROLE_USER");
+        entityManager.persist(admin);
+        entityManager.persist(user);
+        for (String username : List.of("ann", "a_b", "a%c", "abc", "bob", "axe", "a\\d")) {
+            User entity = new User(username, "hash");
+            entity.setRoles(username.equals("bob") ? Set.of(admin, user) : Set.of(user));
+            entityManager.persist(entity);
+            ids.add(entity.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        userService = new UserService(userRepository, 300, 100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void pagesFollowTheIdOrderAcrossCursors() {
+        UserPage first = userService.findPage(null, 3, null);
+        UserPage second = userService.findPage(first.getNextCursor(), 3, null);
+        UserPage last = userService.findPage(second.getNextCursor(), 3, null);
+
+        assertThat(first.getUsers()).extracting(UserSummary::getId).containsExactlyElementsOf(ids.subList(0, 3));
+        assertThat(first.getNextCursor()).isEqualTo(ids.get(2));
+        assertThat(second.getUsers()).extracting(UserSummary::getId).containsExactlyElementsOf(ids.subList(3, 6));
+        assertThat(last.getUsers()).extracting(UserSummary::getId).containsExactly(ids.get(6));
+        assertThat(last.getNextCursor()).isNull();
+    }
+
+    @Test
+    void wildcardsInThePrefixMatchLiterally() {
+        assertThat(usernames("a_")).containsExactly("a_b");
+        assertThat(usernames("a%")).containsExactly("a%c");
+        assertThat(usernames("a\\")).containsExactly("a\\d");
+        assertThat(usernames("a")).containsExactly("ann", "a_b", "a%c", "abc", "axe", "a\\d");
+    }
+
+    @Test
+    void findPageIdsSeeksPastTheCursor() {
+        assertThat(userRepository.findPageIds(ids.get(4), "%", PageRequest.of(0, 10)))
+                .containsExactly(ids.get(5), ids.get(6));
+    }
+
+    @Test
+    void rolesOfAPageAreLoadedInOneQuery() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<User> users = userRepository.findAllWithRolesByIdIn(ids);
+        List<UserSummary> summaries = users.stream().map(UserSummary::from).toList();
+
+        assertThat(summaries).extracting(UserSummary::getId).containsExactlyElementsOf(ids);
+        assertThat(summaries.get(4).getRoles()).containsExactly("ROLE_ADMIN", "ROLE_USER");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private List<String> usernames(String prefix) {
+        return userService.findPage(null, 50, prefix).getUsers().stream().map(UserSummary::getUsername).toList();
+    }
+}
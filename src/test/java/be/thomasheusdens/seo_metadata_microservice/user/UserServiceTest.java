@@ -0,0 +1,78 @@
+package be.thomasheusdens.seo_metadata_microservice.user;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceTest {
+
+    private UserRepository userRepository;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        userService = new UserService(userRepository, 300, 100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void repeatedLookupsHitTheCache() {
+        User alice = new User("alice", "hash");
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(alice));
+
+        assertThat(userService.findByUsername("alice")).contains(alice);
+        assertThat(userService.findByUsername("alice")).contains(alice);
+
+        verify(userRepository, times(1)).findByUsername("alice");
+        assertThat(userService.cacheStats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void unknownUsernameIsNotCachedSoRegistrationIsSeen() {
+        User bob = new User("bob", "hash");
+        when(userRepository.findByUsername("bob")).thenReturn(Optional.empty(), Optional.of(bob));
+
+        assertThat(userService.findByUsername("bob")).isEmpty();
+        assertThat(userService.findByUsername("bob")).contains(bob);
+    }
+
+    @Test
+    void createUserInvalidatesTheCachedEntry() {
+        User stale = new User("carol", "old");
+        User fresh = new User("carol", "new");
+        when(userRepository.findByUsername("carol")).thenReturn(Optional.of(stale), Optional.of(fresh));
+
+        userService.findByUsername("carol");
+        userService.createUser(fresh);
+
+        assertThat(userService.findByUsername("carol")).contains(fresh);
+    }
+
+    @Test
+    void currentUserIdResolvesThePrincipalOrFailsAsUnauthenticated() {
+        User dave = new User("dave", "hash");
+        ReflectionTestUtils.setField(dave, "id", 4L);
+        when(userRepository.findByUsername("dave")).thenReturn(Optional.of(dave));
+        when(userRepository.findByUsername("gone")).thenReturn(Optional.empty());
+
+        assertThat(userService.currentUserId(new UsernamePasswordAuthenticationToken("dave", null))).isEqualTo(4L);
+        assertThatThrownBy(() -> userService.currentUserId(new UsernamePasswordAuthenticationToken("gone", null)))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> userService.currentUserId(null))
+                .isInstanceOf(UsernameNotFoundException.class);
+    }
+}